@@ -0,0 +1,85 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.rpm;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Memory management of the JVM embedded in rpm.
+ *
+ * <p>The embedded JVM lives for the whole rpmbuild, while memory-hungry processes such as Maven run
+ * alongside it. Realm code calls {@link #release(String)} once it is done with a phase of the
+ * build, so that the heap can shrink and memory is handed back to the system, instead of being
+ * held until rpmbuild exits.
+ */
+public class Memory {
+
+    private static final boolean debugEnabled = "1".equals(System.getProperty("dola.bsx.debug"));
+    // Set when a memory profile was configured with %__dola_jvm_* macros
+    private static final boolean releaseEnabled =
+            debugEnabled || "1".equals(System.getProperty("dola.bsx.release"));
+
+    /**
+     * Returns resident set size of the current process in kilobytes, or -1 if it is not known.
+     *
+     * @return resident set size in kB
+     */
+    public static long rss() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring(6).replace("kB", "").strip());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Continue despite exception, RSS is informational only
+        }
+        return -1;
+    }
+
+    /**
+     * Releases memory that is no longer needed after given build phase has finished, by running a
+     * full garbage collection, which also lets the heap shrink. When debugging is enabled, RSS
+     * before and after is reported on standard error.
+     *
+     * <p>Full collections are not free, so this is done only if a memory profile is configured
+     * with {@code %__dola_jvm_*} macros, or if {@code %dola_bsx_debug} is enabled. It is never done
+     * in a daemon, which serves concurrent builds that would all be stalled by the collection.
+     *
+     * <p>Data of the phase must already be unreachable for it to be released.
+     *
+     * @param phase name of the finished phase, used in debug output only
+     */
+    public static void release(String phase) {
+        if (!releaseEnabled || !RPM.isDefaultSession()) {
+            return;
+        }
+        long before = debugEnabled ? rss() : 0;
+        System.gc();
+        if (debugEnabled) {
+            System.err.println(
+                    "BSX: Released memory after "
+                            + phase
+                            + ", RSS "
+                            + before
+                            + " kB -> "
+                            + rss()
+                            + " kB");
+        }
+    }
+}
@@ -16,6 +16,13 @@
 package io.kojan.dola.rpm;
 
 import io.kojan.lujavrite.Lua;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * Provides a Java interface for interacting with the RPM system via Lua. It uses the Lujavrite
@@ -23,10 +30,128 @@ import io.kojan.lujavrite.Lua;
  */
 public class RPM {
 
+    // Type of Lua functions, as returned by lua_getglobal.
+    private static final int LUA_TFUNCTION = 6;
+
+    // Name of Lua global function used by rpmExpandAll.
+    private static final String EXPAND_ALL = "__dola_rpm_expand_all";
+
+    // Expressions and their values are passed between Java and Lua joined with SEP. Occurrences
+    // of SEP and ESC within them are escaped as ESC followed by ESC_SEP or ESC_ESC, respectively.
+    // These are all ASCII control characters, which are single bytes both in Java modified UTF-8
+    // and in Lua, and cannot be consumed as part of a multi-byte sequence, even a malformed one.
+    private static final char SEP = '\u0001';
+    private static final char ESC = '\u0002';
+    private static final char ESC_SEP = '\u0003';
+    private static final char ESC_ESC = '\u0004';
+
+    // Lua helper that expands expressions packed as described above and returns their values
+    // packed the same way.
+    private static final String EXPAND_ALL_SOURCE =
+            """
+            function __dola_rpm_expand_all(packed)
+              local esc = { ["\\1"] = "\\2\\3", ["\\2"] = "\\2\\4" }
+              local unesc = { ["\\3"] = "\\1", ["\\4"] = "\\2" }
+              local out = {}
+              for expr in (packed .. "\\1"):gmatch("(.-)\\1") do
+                local ok, val = pcall(rpm.expand, (expr:gsub("\\2([\\3\\4])", unesc)))
+                out[#out + 1] = (tostring(val):gsub("[\\1\\2]", esc))
+              end
+              return table.concat(out, "\\1")
+            end
+            """;
+
     // Load the Lujavrite native shared library necessary to interface with Lua.
-    // This library provides native support for the Lua-Java bridge.
-    static {
-        System.load("/usr/lib64/lua/5.4/lujavrite.so");
+    // This library provides native support for the Lua-Java bridge. It is loaded on first use only,
+    // as processes that expand macros through a session expander have no Lua interpreter.
+    private static class Native {
+        static {
+            System.load("/usr/lib64/lua/5.4/lujavrite.so");
+        }
+
+        static void load() {}
+    }
+
+    // State of a single rpm process using Dola, such as one rpmbuild invocation.
+    private static class Session {
+        final UnaryOperator<String[]> expander;
+        final IntConsumer exitHandler;
+        final Map<Class<?>, Object> objects = new ConcurrentHashMap<>();
+
+        Session(UnaryOperator<String[]> expander, IntConsumer exitHandler) {
+            this.expander = expander;
+            this.exitHandler = exitHandler;
+        }
+    }
+
+    // Used unless some other session was opened, expands macros with embedded Lua interpreter.
+    private static final Session defaultSession = new Session(null, System::exit);
+
+    // Inheritable, so that threads started by realm code stay within the same session.
+    private static final InheritableThreadLocal<Session> currentSession =
+            new InheritableThreadLocal<>() {
+                @Override
+                protected Session initialValue() {
+                    return defaultSession;
+                }
+            };
+
+    // Whether the current thread belongs to the default session, rather than to one opened by a
+    // daemon serving multiple rpm processes.
+    static boolean isDefaultSession() {
+        return currentSession.get() == defaultSession;
+    }
+
+    /**
+     * Opens a new session bound to the current thread and threads it starts from now on.
+     *
+     * <p>Within the session macros are expanded by the given expander instead of the embedded Lua
+     * interpreter, and {@link #exit(int)} calls the given exit handler instead of terminating the
+     * JVM. This allows a single JVM to serve multiple rpm processes, one session each.
+     *
+     * @param expander function that expands array of macro expressions, returning their values in
+     *     the same order
+     * @param exitHandler called with exit status when the rpm process should terminate
+     */
+    public static void openSession(UnaryOperator<String[]> expander, IntConsumer exitHandler) {
+        currentSession.set(new Session(expander, exitHandler));
+    }
+
+    /**
+     * Closes session bound to the current thread, discarding all its session objects. The thread
+     * goes back to the default session.
+     */
+    public static void closeSession() {
+        currentSession.remove();
+    }
+
+    /**
+     * Returns an object of given type bound to the current session, creating it with given supplier
+     * on first use.
+     *
+     * <p>State that depends on macros of the rpm process, such as values of cached macros, must be
+     * kept in session objects rather than in static fields, so that it does not leak into other
+     * sessions served by the same JVM.
+     *
+     * @param <T> type of the object
+     * @param type type of the object, used as key
+     * @param supplier creates the object when the session has none yet
+     * @return object bound to the current session
+     */
+    public static <T> T sessionObject(Class<T> type, Supplier<? extends T> supplier) {
+        return type.cast(currentSession.get().objects.computeIfAbsent(type, k -> supplier.get()));
+    }
+
+    /**
+     * Terminates the rpm process with given exit status.
+     *
+     * <p>In the default session this terminates the JVM embedded in rpm, and rpm with it. In other
+     * sessions the exit status is passed to the exit handler of the session.
+     *
+     * @param status exit status
+     */
+    public static void exit(int status) {
+        currentSession.get().exitHandler.accept(status);
     }
 
     /**
@@ -45,10 +170,18 @@ public class RPM {
      * result in <strong>undefined behavior</strong> — including potential JVM crashes, segmentation
      * faults, or silent data corruption.
      *
+     * <p>Within a session opened with {@link #openSession} the expression is passed to expander of
+     * the session instead, and the above restriction does not apply.
+     *
      * @param expr the RPM macro expression to be expanded (e.g., {@code "%{_bindir}"})
      * @return the result of expanding the given RPM macro expression
      */
     public static String rpmExpand(String expr) {
+        UnaryOperator<String[]> expander = currentSession.get().expander;
+        if (expander != null) {
+            return expander.apply(new String[] {expr})[0];
+        }
+        Native.load();
         Lua.getglobal("rpm"); //       Stack: rpm(-1)
         Lua.getfield(-1, "expand"); // Stack: rpm(-2), expand(-1)
         Lua.pushstring(expr); //       Stack: rpm(-3), expand(-2), expr(-1)
@@ -57,4 +190,88 @@ public class RPM {
         Lua.pop(2); //                 Stack: (empty)
         return val;
     }
+
+    /**
+     * Expands multiple RPM macro expressions using the embedded Lua interpreter.
+     *
+     * <p>The result is the same as calling {@link #rpmExpand(String)} for each expression, but all
+     * expressions are expanded within a single Lua call, which avoids most of the overhead of
+     * crossing the Java-Lua boundary. This is preferable when many expressions need to be expanded
+     * at once, such as positional arguments of a macro.
+     *
+     * <p>The same restrictions as for {@link #rpmExpand(String)} apply &mdash; this method
+     * <em>must</em> be called from the thread that was called from Lua.
+     *
+     * @param exprs the RPM macro expressions to be expanded
+     * @return results of expanding the given expressions, in the same order
+     */
+    public static String[] rpmExpandAll(String... exprs) {
+        if (exprs.length == 0) {
+            return new String[0];
+        }
+        UnaryOperator<String[]> expander = currentSession.get().expander;
+        if (expander != null) {
+            return expander.apply(exprs.clone());
+        }
+        Native.load();
+        if (Lua.getglobal(EXPAND_ALL) != LUA_TFUNCTION) { // Stack: nil(-1)
+            Lua.pop(1); //                                  Stack: (empty)
+            // Define the helper function on first use
+            Lua.getglobal("load"); //                       Stack: load(-1)
+            Lua.pushstring(EXPAND_ALL_SOURCE); //           Stack: load(-2), src(-1)
+            Lua.pcall(1, 1, 0); //                          Stack: chunk(-1)
+            Lua.pcall(0, 0, 0); //                          Stack: (empty)
+            Lua.getglobal(EXPAND_ALL); //                   Stack: fn(-1)
+        }
+        Lua.pushstring(pack(exprs)); //                     Stack: fn(-2), packed(-1)
+        int status = Lua.pcall(1, 1, 0); //                 Stack: vals(-1)
+        String vals = Lua.tostring(-1);
+        Lua.pop(1); //                                      Stack: (empty)
+        if (status != 0) {
+            throw new RuntimeException("Unable to expand RPM macros: " + vals);
+        }
+        String[] result = unpack(vals);
+        if (result.length != exprs.length) {
+            throw new IllegalStateException(
+                    "Expected " + exprs.length + " macro values, got " + result.length);
+        }
+        return result;
+    }
+
+    static String pack(String[] strings) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < strings.length; i++) {
+            if (i > 0) {
+                sb.append(SEP);
+            }
+            for (char c : strings[i].toCharArray()) {
+                if (c == SEP) {
+                    sb.append(ESC).append(ESC_SEP);
+                } else if (c == ESC) {
+                    sb.append(ESC).append(ESC_ESC);
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    static String[] unpack(String packed) {
+        List<String> strings = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < packed.length(); i++) {
+            char c = packed.charAt(i);
+            if (c == SEP) {
+                strings.add(sb.toString());
+                sb.setLength(0);
+            } else if (c == ESC && i + 1 < packed.length()) {
+                sb.append(packed.charAt(++i) == ESC_SEP ? SEP : ESC);
+            } else {
+                sb.append(c);
+            }
+        }
+        strings.add(sb.toString());
+        return strings.toArray(String[]::new);
+    }
 }
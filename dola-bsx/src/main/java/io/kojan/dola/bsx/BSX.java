@@ -15,11 +15,21 @@
  */
 package io.kojan.dola.bsx;
 
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import org.codehaus.plexus.classworlds.ClassWorld;
 import org.codehaus.plexus.classworlds.launcher.Configurator;
 import org.codehaus.plexus.classworlds.realm.ClassRealm;
@@ -27,11 +37,22 @@ import org.codehaus.plexus.classworlds.realm.ClassRealm;
 public class BSX {
 
     private static final boolean debugEnabled = "1".equals(System.getProperty("dola.bsx.debug"));
+    private static final boolean warmupEnabled = "1".equals(System.getProperty("dola.bsx.warmup"));
+    private static final boolean daemonEnabled = "1".equals(System.getProperty("dola.bsx.daemon"));
     private static final ClassWorld classWorld = new ClassWorld();
     private static final ClassLoader systemClassLoader =
             Thread.currentThread().getContextClassLoader();
+    // Resolved entry points, keyed by realm, class, method name and number of parameters
+    private static final Map<String, Target> dispatchCache = new ConcurrentHashMap<>();
+    // Arguments passed by pushArg for the next callNS, only used by the thread called from Lua
+    private static final List<String> pendingArgs = new ArrayList<>();
+    // Classes to be initialized ahead of time, declared in realm configuration as comments
+    private static final String WARMUP_DIRECTIVE = "# warmup ";
+    private static final Map<String, List<String>> warmupClasses = new LinkedHashMap<>();
+    // Set if calls are forwarded to a daemon rather than made in-process
+    private static DaemonClient daemonClient;
 
-    private static void debug(Object... msg) {
+    static void debug(Object... msg) {
         if (debugEnabled) {
             System.err.print("BSX: ");
             for (Object s : msg) {
@@ -41,6 +62,10 @@ public class BSX {
         }
     }
 
+    static ClassWorld getClassWorld() {
+        return classWorld;
+    }
+
     public static String configureClassWorld(String confDir) throws Throwable {
         Configurator cc = new Configurator(classWorld);
         Set<Path> confPaths = new TreeSet<>();
@@ -52,50 +77,189 @@ public class BSX {
             try (var is = Files.newInputStream(confPath)) {
                 cc.configure(is);
             }
+            readWarmupClasses(confPath);
         }
         if (debugEnabled) {
             for (ClassRealm cr : classWorld.getRealms()) {
                 cr.display(System.err);
             }
         }
+        if (daemonEnabled) {
+            daemonClient =
+                    DaemonClient.connect(
+                            confDir,
+                            System.getProperty("dola.bsx.daemon.socket", ""),
+                            System.getProperty("dola.bsx.daemon.idle", ""));
+        }
+        if (warmupEnabled && daemonClient == null) {
+            Thread thread = new Thread(BSX::warmUp, "dola-bsx-warmup");
+            thread.setDaemon(true);
+            thread.start();
+        }
         return "";
     }
 
-    public static String call0S(String realmName, String className, String methodName)
+    private static void readWarmupClasses(Path confPath) throws IOException {
+        String realmName = null;
+        for (String line : Files.readAllLines(confPath)) {
+            line = line.strip();
+            if (line.startsWith("[") && line.endsWith("]")) {
+                realmName = line.substring(1, line.length() - 1);
+            } else if (line.startsWith(WARMUP_DIRECTIVE) && realmName != null) {
+                warmupClasses
+                        .computeIfAbsent(realmName, k -> new ArrayList<>())
+                        .add(line.substring(WARMUP_DIRECTIVE.length()).strip());
+            }
+        }
+    }
+
+    // Runs on a background thread while rpm continues its work, so it must never call into Lua.
+    // Classes whose static initializers expand RPM macros must not be declared for warm-up.
+    private static void warmUp() {
+        long start = System.nanoTime();
+        int count = 0;
+        for (var entry : warmupClasses.entrySet()) {
+            ClassRealm classRealm = classWorld.getClassRealm(entry.getKey());
+            if (classRealm == null) {
+                continue;
+            }
+            Thread.currentThread().setContextClassLoader(classRealm);
+            for (String className : entry.getValue()) {
+                try {
+                    Class.forName(className, true, classRealm);
+                    count++;
+                } catch (ClassNotFoundException | LinkageError e) {
+                    debug("Unable to warm up ", className, ": ", e);
+                }
+            }
+        }
+        debug("Warmed up ", count, " classes in ", (System.nanoTime() - start) / 1_000_000, " ms");
+    }
+
+    // Entry point resolved within its realm, which becomes context class loader during the call
+    private static class Target {
+        final ClassRealm classRealm;
+        final MethodHandle handle;
+
+        Target(ClassRealm classRealm, MethodHandle handle) {
+            this.classRealm = classRealm;
+            this.handle = handle;
+        }
+    }
+
+    // Resolves static method taking given number of String parameters and returning String, adapted
+    // to take its parameters as a String array
+    private static MethodHandle resolve(
+            ClassRealm classRealm, String className, String methodName, int arity)
+            throws ReflectiveOperationException {
+        Class<?> cls = classRealm.loadClass(className);
+        Class<?>[] paramTypes = new Class<?>[arity];
+        Arrays.fill(paramTypes, String.class);
+        Method method = cls.getDeclaredMethod(methodName, paramTypes);
+        return MethodHandles.publicLookup()
+                .unreflect(method)
+                .asSpreader(String[].class, arity)
+                .asType(MethodType.methodType(String.class, String[].class));
+    }
+
+    static String invoke(String realmName, String className, String methodName, String... args)
             throws Throwable {
-        debug("call0S: realm=", realmName, ", className=", className, ", methodName=", methodName);
-        ClassRealm classRealm = classWorld.getClassRealm(realmName);
+        if (daemonClient != null) {
+            return daemonClient.call(realmName, className, methodName, args);
+        }
+        String key = realmName + '\0' + className + '\0' + methodName + '\0' + args.length;
+        Target target = dispatchCache.get(key);
+        if (target == null) {
+            ClassRealm classRealm = classWorld.getClassRealm(realmName);
+            target =
+                    new Target(classRealm, resolve(classRealm, className, methodName, args.length));
+            dispatchCache.put(key, target);
+        }
         try {
-            Thread.currentThread().setContextClassLoader(classRealm);
-            Class<?> cls = classRealm.loadClass(className);
-            Method method = cls.getDeclaredMethod(methodName);
-            Object ret = method.invoke(null);
-            return (String) ret;
+            Thread.currentThread().setContextClassLoader(target.classRealm);
+            return (String) target.handle.invokeExact(args);
         } finally {
             Thread.currentThread().setContextClassLoader(systemClassLoader);
         }
     }
 
+    public static String call0S(String realmName, String className, String methodName)
+            throws Throwable {
+        if (debugEnabled) {
+            debug(
+                    "call0S: realm=",
+                    realmName,
+                    ", className=",
+                    className,
+                    ", methodName=",
+                    methodName);
+        }
+        return invoke(realmName, className, methodName);
+    }
+
     public static String call1S(
             String realmName, String className, String methodName, String param1) throws Throwable {
-        debug(
-                "call1S: realm=",
-                realmName,
-                ", className=",
-                className,
-                ", methodName=",
-                methodName,
-                ", param1=",
-                param1);
-        ClassRealm classRealm = classWorld.getClassRealm(realmName);
+        if (debugEnabled) {
+            debug(
+                    "call1S: realm=",
+                    realmName,
+                    ", className=",
+                    className,
+                    ", methodName=",
+                    methodName,
+                    ", param1=",
+                    param1);
+        }
+        return invoke(realmName, className, methodName, param1);
+    }
+
+    /**
+     * Passes one argument for the following {@link #callNS} call. Each argument is passed in a call
+     * of its own, so that it is converted to Java string separately from the others.
+     */
+    public static String pushArg(String arg) {
+        pendingArgs.add(arg);
+        return "";
+    }
+
+    /**
+     * Calls static method taking any number of String parameters and returning String, so that
+     * methods of any arity can be called through the same JNI signature. Arguments are the last
+     * {@code argCount} ones passed by {@link #pushArg} beforehand.
+     */
+    public static String callNS(
+            String realmName, String className, String methodName, String argCount)
+            throws Throwable {
+        String[] args;
         try {
-            Thread.currentThread().setContextClassLoader(classRealm);
-            Class<?> cls = classRealm.loadClass(className);
-            Method method = cls.getDeclaredMethod(methodName, String.class);
-            Object ret = method.invoke(null, param1);
-            return (String) ret;
+            int count = Integer.parseInt(argCount);
+            if (count < 0 || count > pendingArgs.size()) {
+                throw new IllegalArgumentException(
+                        "callNS expects "
+                                + argCount
+                                + " arguments, but "
+                                + pendingArgs.size()
+                                + " were passed by pushArg");
+            }
+            args =
+                    pendingArgs
+                            .subList(pendingArgs.size() - count, pendingArgs.size())
+                            .toArray(String[]::new);
         } finally {
-            Thread.currentThread().setContextClassLoader(systemClassLoader);
+            // Arguments left over by a call that failed half-way are dropped too
+            pendingArgs.clear();
+        }
+        if (debugEnabled) {
+            debug(
+                    "callNS: realm=",
+                    realmName,
+                    ", className=",
+                    className,
+                    ", methodName=",
+                    methodName,
+                    ", args=",
+                    Arrays.toString(args));
         }
+        return invoke(realmName, className, methodName, args);
     }
 }
@@ -0,0 +1,93 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.bsx;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.codehaus.plexus.classworlds.realm.ClassRealm;
+
+/**
+ * Training run used to create a CDS archive for the JVM embedded in rpmbuild.
+ *
+ * <p>Configures the class world the same way as {@code dola-bsx.lua} does and then loads, without
+ * initializing, all classes from all JARs of all realms. A few calls are made into every realm as
+ * well. When ran with {@code -XX:ArchiveClassesAtExit=<archive>}, the JVM dumps loaded classes into
+ * a dynamic CDS archive, which can be used during builds by setting the {@code
+ * %__dola_jvm_cds_archive} macro. For example:
+ *
+ * <pre>
+ * /usr/lib/jvm/jre-25-openjdk/bin/java -XX:ArchiveClassesAtExit=/usr/lib/dola/dola.jsa \
+ *     -cp /usr/share/java/dola/dola-bsx.jar:/usr/share/java/plexus-classworlds.jar \
+ *     io.kojan.dola.bsx.CdsTraining /etc/java/dola/classworlds
+ * </pre>
+ *
+ * <p>The JVM must be the one {@code %__dola_libjvm} belongs to and the class path must be the same
+ * as the one set by {@code %__dola_classpath}, otherwise the JVM refuses to use the archive. The
+ * archive needs to be re-created whenever any of the JARs changes.
+ */
+public class CdsTraining {
+    static int loadRealmClasses(ClassRealm realm) throws IOException {
+        int count = 0;
+        for (URL url : realm.getURLs()) {
+            File file;
+            try {
+                file = new File(url.toURI());
+            } catch (URISyntaxException e) {
+                continue;
+            }
+            if (!file.isFile()) {
+                continue;
+            }
+            try (JarFile jarFile = new JarFile(file)) {
+                for (Enumeration<JarEntry> it = jarFile.entries(); it.hasMoreElements(); ) {
+                    String name = it.nextElement().getName();
+                    if (name.endsWith(".class")
+                            && !name.startsWith("META-INF/")
+                            && !name.endsWith("module-info.class")) {
+                        String className = name.substring(0, name.length() - 6).replace('/', '.');
+                        try {
+                            Class.forName(className, false, realm);
+                            count++;
+                        } catch (ClassNotFoundException | LinkageError e) {
+                            // Continue despite exception, optional dependencies may be missing
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws Throwable {
+        if (args.length != 1) {
+            System.err.println("Usage: CdsTraining <classworlds-conf-dir>");
+            System.exit(1);
+        }
+        BSX.configureClassWorld(args[0]);
+        for (ClassRealm realm : BSX.getClassWorld().getRealms()) {
+            int count = loadRealmClasses(realm);
+            System.err.println("Loaded " + count + " classes from " + realm.getId());
+            // Go through the dispatch path too, so that method handle classes are archived
+            BSX.call0S(realm.getId(), "java.lang.System", "lineSeparator");
+            BSX.call1S(realm.getId(), "java.lang.System", "getProperty", "java.version");
+        }
+    }
+}
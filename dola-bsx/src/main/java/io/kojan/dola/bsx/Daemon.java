@@ -0,0 +1,357 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.bsx;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.StandardProtocolFamily;
+import java.net.URL;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.UnaryOperator;
+import org.codehaus.plexus.classworlds.realm.ClassRealm;
+
+/**
+ * Long-lived JVM serving BSX calls on behalf of JVMs embedded in rpm, so that class loading and
+ * JIT compilation of realm code is done once for many rpmbuild invocations, rather than in every
+ * one of them.
+ *
+ * <p>Every connection is served as a separate rpm session on its own thread. Macro expansion
+ * requests made by realm code during a call are sent back to the rpm process, and so is output
+ * written by realm code to {@code System.out} and {@code System.err}. Clients send a fingerprint
+ * of the class world configuration and JARs they would load themselves, and the daemon serves them
+ * only if it matches its own. A daemon with different fingerprint retires &mdash; it stops
+ * accepting connections and exits once its sessions end, so that a new one can take its place.
+ * Daemon also exits after it has been idle for given number of seconds.
+ *
+ * <p>Daemon is normally started by the embedded JVM itself when {@code %dola_bsx_daemon} is
+ * enabled. Usage: {@code Daemon <socket> <classworlds-conf-dir> <idle-timeout>}
+ */
+public class Daemon {
+    private static final String API_REALM = "Realm:bsx-api";
+    private static final String RPM_CLASS = "io.kojan.dola.rpm.RPM";
+
+    // Connection of the session the current thread belongs to, if any
+    private static final InheritableThreadLocal<Session> currentSession =
+            new InheritableThreadLocal<>();
+
+    private static final AtomicInteger activeSessions = new AtomicInteger();
+    private static volatile long lastActive = System.nanoTime();
+    private static volatile boolean retired;
+
+    private static Path socketPath;
+    private static String fingerprint;
+    private static MethodHandle openSession;
+    private static MethodHandle closeSession;
+
+    // Thrown from the exit handler to unwind realm code after it requested rpm to exit
+    private static class SessionExit extends Error {
+        private static final long serialVersionUID = 1L;
+
+        SessionExit() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static class Session {
+        final DaemonConnection connection;
+        // Thread running the current call, the only one allowed to expand macros
+        volatile Thread callThread;
+
+        Session(DaemonConnection connection) {
+            this.connection = connection;
+        }
+
+        String[] expand(String[] exprs) {
+            if (Thread.currentThread() != callThread) {
+                throw new IllegalStateException(
+                        "Macros can be expanded only by the thread that was called from rpm");
+            }
+            try {
+                connection.send(DaemonConnection.EXPAND, exprs);
+                DaemonConnection.Frame frame = connection.receive();
+                if (frame == null || frame.type != DaemonConnection.VALUES) {
+                    throw new IOException("Expected macro values from rpm");
+                }
+                return frame.strings;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        void exit(int status) {
+            try {
+                connection.send(DaemonConnection.EXIT, Integer.toString(status));
+            } catch (IOException e) {
+                // Continue despite exception, the session ends anyway
+            }
+            throw new SessionExit();
+        }
+    }
+
+    // Sends output of session threads to rpm, output of other threads goes to the original stream
+    private static class SessionOutputStream extends OutputStream {
+        private final byte type;
+        private final PrintStream fallback;
+
+        SessionOutputStream(byte type, PrintStream fallback) {
+            this.type = type;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            Session session = currentSession.get();
+            if (session == null) {
+                fallback.write(b, off, len);
+                return;
+            }
+            session.connection.send(type, new String(b, off, len, StandardCharsets.ISO_8859_1));
+        }
+
+        @Override
+        public void flush() {
+            fallback.flush();
+        }
+    }
+
+    /**
+     * Computes fingerprint of the class world configuration in given directory, including sizes
+     * and modification times of all files it loads, the JVM version and the BSX JAR itself.
+     */
+    static String fingerprint(String confDir) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(Runtime.version()).append('\n');
+        URL bsxLocation = BSX.class.getProtectionDomain().getCodeSource().getLocation();
+        appendFileStamp(sb, bsxLocation.getPath());
+        Set<Path> confPaths = new TreeSet<>();
+        try (var dirStream = Files.newDirectoryStream(Path.of(confDir), "*.conf")) {
+            dirStream.forEach(confPaths::add);
+        }
+        for (Path confPath : confPaths) {
+            sb.append(confPath).append('\n');
+            for (String line : Files.readAllLines(confPath)) {
+                sb.append(line).append('\n');
+                line = line.strip();
+                if (line.startsWith("load ")) {
+                    appendFileStamp(sb, line.substring(5).strip());
+                }
+            }
+        }
+        return HexFormat.of().formatHex(md.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void appendFileStamp(StringBuilder sb, String path) {
+        try {
+            Path p = Path.of(path);
+            sb.append(Files.size(p)).append(' ').append(Files.getLastModifiedTime(p));
+        } catch (IOException | RuntimeException e) {
+            sb.append('-');
+        }
+        sb.append('\n');
+    }
+
+    /** Returns socket path to use by default, specific to the current user. */
+    static Path defaultSocketPath() {
+        return Path.of(
+                System.getProperty("java.io.tmpdir"),
+                "dola-bsx-" + System.getProperty("user.name") + ".sock");
+    }
+
+    private static void serve(DaemonConnection connection) {
+        Session session = new Session(connection);
+        currentSession.set(session);
+        boolean sessionOpen = false;
+        try {
+            DaemonConnection.Frame hello = connection.receive();
+            if (hello == null || hello.type != DaemonConnection.HELLO) {
+                return;
+            }
+            if (!fingerprint.equals(hello.strings[0])) {
+                BSX.debug("Client fingerprint differs, retiring");
+                retire();
+                connection.send(DaemonConnection.MISMATCH);
+                return;
+            }
+            connection.send(DaemonConnection.HELLO);
+            UnaryOperator<String[]> expander = session::expand;
+            IntConsumer exitHandler = session::exit;
+            openSession.invokeExact(expander, exitHandler);
+            sessionOpen = true;
+            DaemonConnection.Frame call;
+            while ((call = connection.receive()) != null) {
+                if (call.type != DaemonConnection.CALL) {
+                    throw new IOException("Unexpected frame type " + (char) call.type);
+                }
+                String[] args = Arrays.copyOfRange(call.strings, 3, call.strings.length);
+                String result;
+                session.callThread = Thread.currentThread();
+                try {
+                    result = BSX.invoke(call.strings[0], call.strings[1], call.strings[2], args);
+                } catch (SessionExit e) {
+                    return;
+                } catch (Throwable e) {
+                    StringWriter trace = new StringWriter();
+                    e.printStackTrace(new PrintWriter(trace));
+                    connection.send(DaemonConnection.ERROR, e.toString(), trace.toString());
+                    continue;
+                } finally {
+                    session.callThread = null;
+                }
+                connection.send(DaemonConnection.RESULT, result);
+            }
+        } catch (Throwable e) {
+            BSX.debug("Session failed: ", e);
+        } finally {
+            if (sessionOpen) {
+                try {
+                    closeSession.invokeExact();
+                } catch (Throwable e) {
+                    BSX.debug("Unable to close session: ", e);
+                }
+            }
+            currentSession.remove();
+            try {
+                connection.close();
+            } catch (IOException e) {
+                // Continue despite exception
+            }
+            lastActive = System.nanoTime();
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    private static synchronized void retire() {
+        if (!retired) {
+            retired = true;
+            try {
+                Files.deleteIfExists(socketPath);
+            } catch (IOException e) {
+                // Continue despite exception
+            }
+        }
+    }
+
+    private static void watch(long idleTimeoutNanos) {
+        while (true) {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (activeSessions.get() == 0
+                    && (retired || System.nanoTime() - lastActive > idleTimeoutNanos)) {
+                BSX.debug("Daemon exiting");
+                retire();
+                System.exit(0);
+            }
+        }
+    }
+
+    private static boolean isListening(UnixDomainSocketAddress address) {
+        try {
+            SocketChannel.open(address).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws Throwable {
+        if (args.length != 3) {
+            System.err.println("Usage: Daemon <socket> <classworlds-conf-dir> <idle-timeout>");
+            System.exit(1);
+        }
+        socketPath = Path.of(args[0]);
+        String confDir = args[1];
+        long idleTimeoutNanos = Long.parseLong(args[2]) * 1_000_000_000L;
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socketPath);
+        if (isListening(address)) {
+            BSX.debug("Another daemon is already listening on ", socketPath);
+            return;
+        }
+        Files.deleteIfExists(socketPath);
+
+        fingerprint = fingerprint(confDir);
+        BSX.configureClassWorld(confDir);
+        ClassRealm apiRealm = BSX.getClassWorld().getRealm(API_REALM);
+        Class<?> rpm = apiRealm.loadClass(RPM_CLASS);
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        openSession =
+                lookup.findStatic(
+                        rpm,
+                        "openSession",
+                        MethodType.methodType(void.class, UnaryOperator.class, IntConsumer.class));
+        closeSession = lookup.findStatic(rpm, "closeSession", MethodType.methodType(void.class));
+        System.setOut(
+                new PrintStream(
+                        new SessionOutputStream(DaemonConnection.STDOUT, System.out), true));
+        System.setErr(
+                new PrintStream(
+                        new SessionOutputStream(DaemonConnection.STDERR, System.err), true));
+
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(address);
+        Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+        BSX.debug("Daemon listening on ", socketPath);
+
+        Thread watchdog = new Thread(() -> watch(idleTimeoutNanos), "dola-bsx-daemon-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+
+        for (int n = 1; ; n++) {
+            SocketChannel channel = server.accept();
+            if (retired) {
+                channel.close();
+                continue;
+            }
+            activeSessions.incrementAndGet();
+            DaemonConnection connection = new DaemonConnection(channel);
+            String threadName = "dola-bsx-session-" + n;
+            new Thread(() -> serve(connection), threadName).start();
+        }
+    }
+}
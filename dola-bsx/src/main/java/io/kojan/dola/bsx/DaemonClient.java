@@ -0,0 +1,210 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.bsx;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forwards BSX calls made in the JVM embedded in rpm to {@link Daemon}.
+ *
+ * <p>Frames sent by the daemon are read on a background thread. Output is written out right away,
+ * even between calls, which is when post-install hooks run. Other frames are handed over to the
+ * thread that was called from Lua, which is the only one that can expand macros.
+ */
+class DaemonClient {
+    private static final long HELLO_TIMEOUT_SECONDS = 5;
+    private static final String API_REALM = "Realm:bsx-api";
+    private static final String RPM_CLASS = "io.kojan.dola.rpm.RPM";
+    // Queued when connection to the daemon is lost
+    private static final DaemonConnection.Frame CLOSED =
+            new DaemonConnection.Frame((byte) 0, new String[0]);
+
+    private final DaemonConnection connection;
+    private final BlockingQueue<DaemonConnection.Frame> queue = new LinkedBlockingQueue<>();
+    private MethodHandle expander;
+
+    private DaemonClient(DaemonConnection connection) {
+        this.connection = connection;
+    }
+
+    private void read() {
+        try {
+            DaemonConnection.Frame frame;
+            while ((frame = connection.receive()) != null) {
+                if (frame.type == DaemonConnection.STDOUT) {
+                    System.out.write(frame.strings[0].getBytes(StandardCharsets.ISO_8859_1));
+                    System.out.flush();
+                } else if (frame.type == DaemonConnection.STDERR) {
+                    System.err.write(frame.strings[0].getBytes(StandardCharsets.ISO_8859_1));
+                    System.err.flush();
+                } else {
+                    queue.add(frame);
+                }
+            }
+        } catch (IOException e) {
+            BSX.debug("Connection to daemon failed: ", e);
+        }
+        queue.add(CLOSED);
+    }
+
+    /**
+     * Connects to the daemon listening on given socket, or starts a new daemon if there is none.
+     * Returns {@code null} if calls need to be made in-process, which is always the case when a
+     * new daemon had to be started.
+     */
+    static DaemonClient connect(String confDir, String socket, String idleTimeout) {
+        Path socketPath = socket.isEmpty() ? Daemon.defaultSocketPath() : Path.of(socket);
+        String fingerprint;
+        SocketChannel channel;
+        try {
+            fingerprint = Daemon.fingerprint(confDir);
+            if (!Files.exists(socketPath)) {
+                spawn(confDir, socketPath, idleTimeout);
+                return null;
+            }
+            // Never trust daemons of other users, they could return anything
+            String owner = Files.getOwner(socketPath).getName();
+            if (!owner.equals(System.getProperty("user.name"))) {
+                BSX.debug("Daemon socket ", socketPath, " is owned by ", owner);
+                return null;
+            }
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            BSX.debug("Unable to connect to daemon: ", e);
+            spawn(confDir, socketPath, idleTimeout);
+            return null;
+        }
+        DaemonClient client = new DaemonClient(new DaemonConnection(channel));
+        Thread reader = new Thread(client::read, "dola-bsx-daemon-client");
+        reader.setDaemon(true);
+        reader.start();
+        try {
+            client.connection.send(DaemonConnection.HELLO, fingerprint);
+            DaemonConnection.Frame hello =
+                    client.queue.poll(HELLO_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (hello != null && hello.type == DaemonConnection.HELLO) {
+                BSX.debug("Connected to daemon at ", socketPath);
+                return client;
+            }
+            BSX.debug("Daemon did not accept connection");
+        } catch (IOException | InterruptedException e) {
+            BSX.debug("Unable to connect to daemon: ", e);
+        }
+        try {
+            client.connection.close();
+        } catch (IOException e) {
+            // Continue despite exception
+        }
+        return null;
+    }
+
+    // Whether given JVM option is part of the memory profile set by dola-bsx.lua
+    private static boolean isMemoryOption(String option) {
+        return option.startsWith("-Xmx")
+                || option.matches("-XX:\\+Use[A-Za-z0-9]+GC")
+                || option.startsWith("-XX:G1PeriodicGCInterval=")
+                || option.startsWith("-XX:ZUncommitDelay=");
+    }
+
+    private static void spawn(String confDir, Path socketPath, String idleTimeout) {
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        List<String> command = new ArrayList<>();
+        command.add(java.toString());
+        command.add("-Xshare:auto");
+        // Daemon runs with the same memory profile as the JVM embedded in rpm
+        for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (isMemoryOption(option)) {
+                command.add(option);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("-Ddola.bsx.debug=" + System.getProperty("dola.bsx.debug", ""));
+        command.add(Daemon.class.getName());
+        command.add(socketPath.toString());
+        command.add(confDir);
+        command.add(idleTimeout.isEmpty() ? "600" : idleTimeout);
+        try {
+            new ProcessBuilder(command)
+                    .redirectInput(ProcessBuilder.Redirect.from(new File("/dev/null")))
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            BSX.debug("Started daemon at ", socketPath);
+        } catch (IOException e) {
+            BSX.debug("Unable to start daemon: ", e);
+        }
+    }
+
+    private String[] expand(String[] exprs) throws Throwable {
+        if (expander == null) {
+            Class<?> rpm = BSX.getClassWorld().getRealm(API_REALM).loadClass(RPM_CLASS);
+            expander =
+                    MethodHandles.publicLookup()
+                            .findStatic(
+                                    rpm,
+                                    "rpmExpandAll",
+                                    MethodType.methodType(String[].class, String[].class));
+        }
+        return (String[]) expander.invokeExact(exprs);
+    }
+
+    String call(String realmName, String className, String methodName, String... args)
+            throws Throwable {
+        String[] request = new String[args.length + 3];
+        request[0] = realmName;
+        request[1] = className;
+        request[2] = methodName;
+        System.arraycopy(args, 0, request, 3, args.length);
+        connection.send(DaemonConnection.CALL, request);
+        while (true) {
+            DaemonConnection.Frame frame = queue.take();
+            switch (frame.type) {
+                case DaemonConnection.EXPAND:
+                    connection.send(DaemonConnection.VALUES, expand(frame.strings));
+                    break;
+                case DaemonConnection.RESULT:
+                    return frame.strings[0];
+                case DaemonConnection.ERROR:
+                    // Print where the call failed, as it would be printed if it was in-process
+                    System.err.print(frame.strings[1]);
+                    System.err.flush();
+                    throw new RuntimeException("Call failed in daemon: " + frame.strings[0]);
+                case DaemonConnection.EXIT:
+                    System.out.flush();
+                    System.exit(Integer.parseInt(frame.strings[0]));
+                    break;
+                default:
+                    throw new IOException("Connection to daemon was lost");
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.bsx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Connection between the JVM embedded in rpm and dola daemon.
+ *
+ * <p>Both sides exchange frames, each consisting of type byte, number of strings and the strings
+ * themselves, as UTF-8 preceded by their length in bytes. Output written by realm code is sent as
+ * strings of ISO-8859-1 characters, one per byte, so that any bytes pass unchanged.
+ */
+class DaemonConnection implements Closeable {
+    // Client: fingerprint; daemon: (none)
+    static final byte HELLO = 'H';
+    // Daemon: (none), sent instead of HELLO when fingerprints differ
+    static final byte MISMATCH = 'V';
+    // Client: realm, class, method, arguments...
+    static final byte CALL = 'C';
+    // Daemon: result of CALL
+    static final byte RESULT = 'R';
+    // Daemon: description and stack trace of exception thrown by CALL
+    static final byte ERROR = 'F';
+    // Daemon: exit status, sent when CALL wants rpm to terminate
+    static final byte EXIT = 'X';
+    // Daemon: macro expressions to be expanded by rpm
+    static final byte EXPAND = 'E';
+    // Client: values of expanded macro expressions
+    static final byte VALUES = 'v';
+    // Daemon: data written to standard output
+    static final byte STDOUT = 'O';
+    // Daemon: data written to standard error
+    static final byte STDERR = 'W';
+
+    static class Frame {
+        final byte type;
+        final String[] strings;
+
+        Frame(byte type, String[] strings) {
+            this.type = type;
+            this.strings = strings;
+        }
+    }
+
+    private final SocketChannel channel;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    DaemonConnection(SocketChannel channel) {
+        this.channel = channel;
+        in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    synchronized void send(byte type, String... strings) throws IOException {
+        out.writeByte(type);
+        out.writeInt(strings.length);
+        for (String s : strings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.flush();
+    }
+
+    /** Reads next frame, or returns {@code null} if the other side closed the connection. */
+    Frame receive() throws IOException {
+        byte type;
+        try {
+            type = in.readByte();
+        } catch (EOFException e) {
+            return null;
+        }
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+        }
+        return new Frame(type, strings);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
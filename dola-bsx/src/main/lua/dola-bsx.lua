@@ -30,12 +30,43 @@ if not lujavrite.initialized() then
         io.stderr:write("║ └─╯╰─╯╰╴╰─┴╯                                     ║\n")
         io.stderr:write("╚══════════════════════════════════════════════════╝\n")
     end
-    lujavrite.init(
-       libjvm,
+    local jvm_opts = {
        "-Djava.class.path=" .. classpath,
        "-Ddola.bsx.debug=" .. bsx_debug,
+       "-Ddola.bsx.warmup=" .. rpm.expand("%{?dola_bsx_warmup}"),
+       "-Ddola.bsx.daemon=" .. rpm.expand("%{?dola_bsx_daemon}"),
+       "-Ddola.bsx.daemon.socket=" .. rpm.expand("%{?__dola_bsx_daemon_socket}"),
+       "-Ddola.bsx.daemon.idle=" .. rpm.expand("%{?__dola_bsx_daemon_idle_timeout}"),
        "--enable-native-access=ALL-UNNAMED"
-    )
+    }
+    -- Memory profile, the JVM runs alongside other processes for the whole build
+    local max_heap = rpm.expand("%{?__dola_jvm_max_heap}")
+    if max_heap ~= "" then
+       table.insert(jvm_opts, "-Xmx" .. max_heap)
+    end
+    local gc = rpm.expand("%{?__dola_jvm_gc}")
+    if gc ~= "" then
+       table.insert(jvm_opts, "-XX:+Use" .. gc .. "GC")
+    end
+    local uncommit_interval = tonumber(rpm.expand("%{?__dola_jvm_uncommit_interval}"))
+    if uncommit_interval then
+       if gc == "" or gc == "G1" then
+          table.insert(jvm_opts, "-XX:G1PeriodicGCInterval=" .. uncommit_interval)
+       elseif gc == "Z" then
+          table.insert(jvm_opts, "-XX:ZUncommitDelay=" .. math.ceil(uncommit_interval / 1000))
+       end
+    end
+    -- Memory is released after build phases only if memory profile is used
+    if max_heap ~= "" or gc ~= "" or uncommit_interval then
+       table.insert(jvm_opts, "-Ddola.bsx.release=1")
+    end
+    -- Use CDS archive of realm classes, if it was created
+    local cds_archive = rpm.expand("%{?__dola_jvm_cds_archive}")
+    if cds_archive ~= "" and posix.access(cds_archive, "r") then
+       table.insert(jvm_opts, "-XX:SharedArchiveFile=" .. cds_archive)
+       table.insert(jvm_opts, "-Xshare:auto")
+    end
+    lujavrite.init(libjvm, table.unpack(jvm_opts))
     lujavrite.call(
        "io/kojan/dola/bsx/BSX",
        "configureClassWorld",
@@ -67,8 +98,33 @@ local function call1(realm, class, method, arg)
    )
 end
 
+-- Call method with any number of String arguments.  Arguments are
+-- passed one by one before the call so that the JNI signature stays
+-- the same and each of them is converted to Java string on its own
+local function callN(realm, class, method, ...)
+   local args = table.pack(...)
+   for i = 1, args.n do
+      lujavrite.call(
+         "io/kojan/dola/bsx/BSX",
+         "pushArg",
+         "(Ljava/lang/String;)Ljava/lang/String;",
+         tostring(args[i])
+      )
+   end
+   return lujavrite.call(
+      "io/kojan/dola/bsx/BSX",
+      "callNS",
+      "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)Ljava/lang/String;",
+      realm,
+      class,
+      method,
+      tostring(args.n)
+   )
+end
+
 -- Exported module functions
 return {
    call0 = call0,
-   call1 = call1
+   call1 = call1,
+   callN = callN
 }
@@ -0,0 +1,111 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.bsx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Measures time from launching the JVM until the first {@link BSX#call0S} call returns, with and
+ * without a CDS archive created by {@link CdsTraining}.
+ *
+ * <p>Not ran as part of the test suite. Usage: {@code StartupBenchmark <class-path>
+ * <classworlds-conf-dir> [rounds [realm class method]]}, where class path consists of JARs, like
+ * {@code %__dola_classpath}. By default, {@code Realm:bsx} is asked for {@code
+ * java.lang.System.lineSeparator()}.
+ */
+public class StartupBenchmark {
+    private static long run(List<String> command) throws Exception {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Command " + command + " failed");
+        }
+        return System.nanoTime() - start;
+    }
+
+    // CDS can archive classes from JARs only, so probe class needs to be packaged too
+    private static Path createProbeJar(Path dir) throws IOException {
+        Path jarPath = dir.resolve("probe.jar");
+        String name = StartupBenchmark.class.getName().replace('.', '/') + ".class";
+        try (InputStream is = StartupBenchmark.class.getClassLoader().getResourceAsStream(name);
+                JarOutputStream jos = new JarOutputStream(Files.newOutputStream(jarPath))) {
+            jos.putNextEntry(new JarEntry(name));
+            is.transferTo(jos);
+        }
+        return jarPath;
+    }
+
+    private static List<String> javaCommand(String classPath, String... opts) {
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        List<String> command = new ArrayList<>();
+        command.add(java.toString());
+        command.addAll(List.of(opts));
+        command.add("-cp");
+        command.add(classPath);
+        return command;
+    }
+
+    public static void main(String[] args) throws Throwable {
+        if (args[0].equals("--probe")) {
+            BSX.configureClassWorld(args[1]);
+            BSX.call0S(args[2], args[3], args[4]);
+            return;
+        }
+        String confDir = args[1];
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        List<String> call =
+                args.length > 5
+                        ? List.of(args[3], args[4], args[5])
+                        : List.of("Realm:bsx", "java.lang.System", "lineSeparator");
+        Path tempDir = Files.createTempDirectory("dola-benchmark-");
+        String classPath = args[0] + ":" + createProbeJar(tempDir);
+        Path archive = tempDir.resolve("dola.jsa");
+        List<String> training = javaCommand(classPath, "-XX:ArchiveClassesAtExit=" + archive);
+        training.add(CdsTraining.class.getName());
+        training.add(confDir);
+        run(training);
+        for (boolean cds : new boolean[] {false, true}) {
+            List<String> command =
+                    cds
+                            ? javaCommand(classPath, "-XX:SharedArchiveFile=" + archive)
+                            : javaCommand(classPath);
+            command.add(StartupBenchmark.class.getName());
+            command.add("--probe");
+            command.add(confDir);
+            command.addAll(call);
+            // Warm up disk caches
+            run(command);
+            long total = 0;
+            for (int i = 0; i < rounds; i++) {
+                total += run(command);
+            }
+            System.err.println(
+                    (cds ? "With CDS archive: " : "Without CDS archive: ")
+                            + total / rounds / 1_000_000
+                            + " ms to first call0S");
+        }
+        Files.delete(archive);
+        Files.delete(tempDir.resolve("probe.jar"));
+        Files.delete(tempDir);
+    }
+}
@@ -34,6 +34,11 @@ public class DeclarativeBuild {
     private final boolean usesJavapackagesBootstrap;
     private final boolean singletonPackaging;
     private final String xmvnToolchain;
+    private final boolean parallelBuild;
+    private final int parallelBuildCap;
+    private final String testForkCount;
+    private final String testParallel;
+    private final boolean testReuseForks;
 
     public DeclarativeBuild(
             String baseName,
@@ -47,7 +52,12 @@ public class DeclarativeBuild {
             List<String> testExcludes,
             boolean usesJavapackagesBootstrap,
             boolean singletonPackaging,
-            String xmvnToolchain) {
+            String xmvnToolchain,
+            boolean parallelBuild,
+            int parallelBuildCap,
+            String testForkCount,
+            String testParallel,
+            boolean testReuseForks) {
         this.baseName = baseName;
         this.skipTests = skipTests;
         this.mavenOptions = List.copyOf(mavenOptions);
@@ -60,6 +70,11 @@ public class DeclarativeBuild {
         this.usesJavapackagesBootstrap = usesJavapackagesBootstrap;
         this.singletonPackaging = singletonPackaging;
         this.xmvnToolchain = xmvnToolchain;
+        this.parallelBuild = parallelBuild;
+        this.parallelBuildCap = parallelBuildCap;
+        this.testForkCount = testForkCount;
+        this.testParallel = testParallel;
+        this.testReuseForks = testReuseForks;
     }
 
     public String getBaseName() {
@@ -109,4 +124,27 @@ public class DeclarativeBuild {
     public String getXmvnToolchain() {
         return xmvnToolchain;
     }
+
+    public boolean isParallelBuild() {
+        return parallelBuild;
+    }
+
+    // Maximal number of build threads, or 0 if not capped
+    public int getParallelBuildCap() {
+        return parallelBuildCap;
+    }
+
+    // Number of forked test JVMs, possibly suffixed with "C" meaning per CPU, or null
+    public String getTestForkCount() {
+        return testForkCount;
+    }
+
+    // Surefire parallel execution mode, or null
+    public String getTestParallel() {
+        return testParallel;
+    }
+
+    public boolean isTestReuseForks() {
+        return testReuseForks;
+    }
 }
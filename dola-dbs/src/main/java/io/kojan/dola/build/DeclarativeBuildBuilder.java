@@ -37,6 +37,11 @@ public class DeclarativeBuildBuilder {
     private boolean usesJavapackagesBootstrap;
     private boolean singletonPackaging;
     private String xmvnToolchain;
+    private boolean parallelBuild;
+    private int parallelBuildCap;
+    private String testForkCount;
+    private String testParallel;
+    private boolean testReuseForks;
 
     public DeclarativeBuildBuilder(String baseName) {
         this.baseName = baseName;
@@ -102,6 +107,31 @@ public class DeclarativeBuildBuilder {
         return this;
     }
 
+    public DeclarativeBuildBuilder parallelBuild(boolean parallelBuild) {
+        this.parallelBuild = parallelBuild;
+        return this;
+    }
+
+    public DeclarativeBuildBuilder parallelBuildCap(int parallelBuildCap) {
+        this.parallelBuildCap = parallelBuildCap;
+        return this;
+    }
+
+    public DeclarativeBuildBuilder testForkCount(String testForkCount) {
+        this.testForkCount = testForkCount;
+        return this;
+    }
+
+    public DeclarativeBuildBuilder testParallel(String testParallel) {
+        this.testParallel = testParallel;
+        return this;
+    }
+
+    public DeclarativeBuildBuilder testReuseForks(boolean testReuseForks) {
+        this.testReuseForks = testReuseForks;
+        return this;
+    }
+
     public DeclarativeBuild build() {
         return new DeclarativeBuild(
                 baseName,
@@ -115,6 +145,11 @@ public class DeclarativeBuildBuilder {
                 testExcludes,
                 usesJavapackagesBootstrap,
                 singletonPackaging,
-                xmvnToolchain);
+                xmvnToolchain,
+                parallelBuild,
+                parallelBuildCap,
+                testForkCount,
+                testParallel,
+                testReuseForks);
     }
 }
@@ -30,7 +30,7 @@ public class PackagingOption {
     private final List<String> compatVersions;
     private final List<Alias> aliases;
 
-    private PackagingOption(
+    PackagingOption(
             String groupIdGlob,
             String artifactIdGlob,
             String extensionGlob,
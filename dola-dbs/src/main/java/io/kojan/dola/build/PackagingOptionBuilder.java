@@ -0,0 +1,74 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.build;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PackagingOptionBuilder {
+
+    private final String groupIdGlob;
+    private final String artifactIdGlob;
+    private String targetPackage = "";
+    private String targetRepository = "";
+    private final List<String> files = new ArrayList<>();
+    private final List<String> compatVersions = new ArrayList<>();
+    private final List<Alias> aliases = new ArrayList<>();
+
+    public PackagingOptionBuilder(String groupIdGlob, String artifactIdGlob) {
+        this.groupIdGlob = groupIdGlob;
+        this.artifactIdGlob = artifactIdGlob;
+    }
+
+    public PackagingOptionBuilder targetPackage(String targetPackage) {
+        this.targetPackage = targetPackage;
+        return this;
+    }
+
+    public PackagingOptionBuilder targetRepository(String targetRepository) {
+        this.targetRepository = targetRepository;
+        return this;
+    }
+
+    public PackagingOptionBuilder file(String file) {
+        files.add(file);
+        return this;
+    }
+
+    public PackagingOptionBuilder compatVersion(String compatVersion) {
+        compatVersions.add(compatVersion);
+        return this;
+    }
+
+    public PackagingOptionBuilder alias(Alias alias) {
+        aliases.add(alias);
+        return this;
+    }
+
+    public PackagingOption build() {
+        return new PackagingOption(
+                groupIdGlob,
+                artifactIdGlob,
+                "",
+                "",
+                "",
+                targetPackage,
+                targetRepository,
+                files,
+                compatVersions,
+                aliases);
+    }
+}
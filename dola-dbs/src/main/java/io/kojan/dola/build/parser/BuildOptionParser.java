@@ -18,16 +18,22 @@ package io.kojan.dola.build.parser;
 import io.kojan.dola.build.Alias;
 import io.kojan.dola.build.DeclarativeBuild;
 import io.kojan.dola.build.DeclarativeBuildBuilder;
-import io.kojan.dola.build.PackagingOption;
+import io.kojan.dola.build.PackagingOptionBuilder;
 import io.kojan.dola.build.TransformOption;
+import java.util.Set;
 import org.fedoraproject.xmvn.artifact.Artifact;
 
 public class BuildOptionParser {
-    private final Lexer lx;
-    private final DeclarativeBuildBuilder db;
+    private final String rpmName;
+    private final String str;
+    private Lexer lx;
+    private DeclarativeBuildBuilder db;
 
     public BuildOptionParser(String rpmName, String str) throws BuildOptionParseException {
-        this.lx = new Lexer(str);
+        this.rpmName = rpmName;
+        this.str = str;
+        // Parse in fast mode first, canonical form and error context are only needed rarely
+        this.lx = new Lexer(str, false);
         this.db = new DeclarativeBuildBuilder(rpmName);
     }
 
@@ -47,6 +53,21 @@ public class BuildOptionParser {
         return false;
     }
 
+    private boolean tryParseParallelBuild() throws BuildOptionParseException {
+        if (lx.isKeyword("parallelBuild")) {
+            db.parallelBuild(true);
+            if (lx.lookaheadIsLiteral()) {
+                String cap = lx.next().expectLiteral();
+                if (!cap.matches("[1-9][0-9]{0,3}")) {
+                    lx.error("Semantic error: parallel build cap must be a positive integer");
+                }
+                db.parallelBuildCap(Integer.parseInt(cap));
+            }
+            return true;
+        }
+        return false;
+    }
+
     private boolean tryParseMavenOptions() throws BuildOptionParseException {
         if (lx.isKeyword("mavenOption")) {
             db.mavenOption(lx.next().expectLiteral());
@@ -85,6 +106,45 @@ public class BuildOptionParser {
         return false;
     }
 
+    private static final Set<String> PARALLEL_TEST_MODES =
+            Set.of(
+                    "methods",
+                    "classes",
+                    "both",
+                    "suites",
+                    "suitesAndClasses",
+                    "suitesAndMethods",
+                    "classesAndMethods",
+                    "all");
+
+    private boolean tryParseTestOptions() throws BuildOptionParseException {
+        if (!lx.isKeyword("tests")) {
+            return false;
+        }
+        lx.next().expectBlockBegin();
+        while (!lx.next().isBlockEnd()) {
+            if (lx.isKeyword("forkCount")) {
+                String forkCount = lx.next().expectLiteral();
+                if (!forkCount.matches("[1-9][0-9]{0,3}C?")) {
+                    lx.error(
+                            "Semantic error: fork count must be a positive integer, optionally followed by C");
+                }
+                db.testForkCount(forkCount);
+            } else if (lx.isKeyword("parallel")) {
+                String parallel = lx.next().expectLiteral();
+                if (!PARALLEL_TEST_MODES.contains(parallel)) {
+                    lx.error("Semantic error: unknown parallel test execution mode");
+                }
+                db.testParallel(parallel);
+            } else if (lx.isKeyword("reuseForks")) {
+                db.testReuseForks(true);
+            } else {
+                lx.error("Syntax error: expected keyword related to tests, or closing brace");
+            }
+        }
+        return true;
+    }
+
     private boolean tryParseBuildRequires() throws BuildOptionParseException {
         if (lx.isKeyword("buildRequire")) {
             db.extraBuildReq(Artifact.of(lx.next().expectLiteral()));
@@ -115,13 +175,13 @@ public class BuildOptionParser {
         return false;
     }
 
-    private PackagingOption parseArtifactSelectorLiteral(String globLiteral)
+    private PackagingOptionBuilder parseArtifactSelectorLiteral(String globLiteral)
             throws BuildOptionParseException {
         if (globLiteral.indexOf(':') < 0) {
             lx.error("Syntax error: artifact glob must contain a colon");
         }
         String[] globArray = globLiteral.split(":", 2);
-        return PackagingOption.of(globArray[0], globArray[1]);
+        return new PackagingOptionBuilder(globArray[0], globArray[1]);
     }
 
     private Alias parseAliasLiteral(String aliasLiteral) throws BuildOptionParseException {
@@ -136,51 +196,58 @@ public class BuildOptionParser {
         if (!lx.isKeyword("artifact")) {
             return false;
         }
-        PackagingOption po = parseArtifactSelectorLiteral(lx.next().expectLiteral());
+        PackagingOptionBuilder po = parseArtifactSelectorLiteral(lx.next().expectLiteral());
+        boolean hasTargetPackage = false;
+        boolean hasTargetRepository = false;
         lx.next().expectBlockBegin();
         while (!lx.next().isBlockEnd()) {
             if (lx.isKeyword("package")) {
-                if (!po.getTargetPackage().isEmpty()) {
+                if (hasTargetPackage) {
                     lx.error("Semantic error: duplicate target package specified");
                 }
-                po = po.withTargetPackage(lx.next().expectLiteral());
+                String targetPackage = lx.next().expectLiteral();
+                po.targetPackage(targetPackage);
+                hasTargetPackage = !targetPackage.isEmpty();
             } else if (lx.isKeyword("noInstall")) {
-                if (!po.getTargetPackage().isEmpty()) {
+                if (hasTargetPackage) {
                     lx.error("Semantic error: duplicate target package specified");
                 }
-                po = po.withTargetPackage("__noinstall");
+                po.targetPackage("__noinstall");
+                hasTargetPackage = true;
             } else if (lx.isKeyword("repository")) {
-                if (!po.getTargetRepository().isEmpty()) {
+                if (hasTargetRepository) {
                     lx.error("Semantic error: duplicate target repository specified");
                 }
-                po = po.withTargetRepository(lx.next().expectLiteral());
+                String targetRepository = lx.next().expectLiteral();
+                po.targetRepository(targetRepository);
+                hasTargetRepository = !targetRepository.isEmpty();
             } else if (lx.isKeyword("file")) {
-                po = po.withFile(lx.next().expectLiteral());
+                po.file(lx.next().expectLiteral());
             } else if (lx.isKeyword("files")) {
                 lx.next().expectBlockBegin();
                 while (!lx.next().isBlockEnd()) {
-                    po = po.withFile(lx.expectLiteral());
+                    po.file(lx.expectLiteral());
                 }
             } else if (lx.isKeyword("compatVersion")) {
-                po = po.withCompatVersion(lx.next().expectLiteral());
+                po.compatVersion(lx.next().expectLiteral());
             } else if (lx.isKeyword("compatVersions")) {
                 lx.next().expectBlockBegin();
                 while (!lx.next().isBlockEnd()) {
-                    po = po.withCompatVersion(lx.expectLiteral());
+                    po.compatVersion(lx.expectLiteral());
                 }
             } else if (lx.isKeyword("alias")) {
-                po = po.withAlias(parseAliasLiteral(lx.next().expectLiteral()));
+                po.alias(parseAliasLiteral(lx.next().expectLiteral()));
             } else if (lx.isKeyword("aliases")) {
                 lx.next().expectBlockBegin();
                 while (!lx.next().isBlockEnd()) {
-                    po = po.withAlias(parseAliasLiteral(lx.expectLiteral()));
+                    po.alias(parseAliasLiteral(lx.expectLiteral()));
                 }
             } else {
                 lx.error(
                         "Syntax error: expected keyword related to artifact packaging, or closing brace");
             }
         }
-        db.packagingOption(po);
+        db.packagingOption(po.build());
         return true;
     }
 
@@ -284,12 +351,31 @@ public class BuildOptionParser {
         return false;
     }
 
+    // Starts over with a lexer that tracks canonical form and path to the current token
+    private void restartTracking() throws BuildOptionParseException {
+        lx = new Lexer(str, true);
+        db = new DeclarativeBuildBuilder(rpmName);
+    }
+
     public DeclarativeBuild parse() throws BuildOptionParseException {
+        try {
+            return parseAll();
+        } catch (BuildOptionParseException e) {
+            // Parse again to report the error with context
+            restartTracking();
+            parseAll();
+            throw e;
+        }
+    }
+
+    private DeclarativeBuild parseAll() throws BuildOptionParseException {
         while (!lx.next().isEndOfInput()) {
             if (tryParseFlag()
                     || tryParseToolchainOptions()
+                    || tryParseParallelBuild()
                     || tryParseMavenOptions()
                     || tryParseTestExcludes()
+                    || tryParseTestOptions()
                     || tryParseBuildRequires()
                     || tryParsePackagingOptions()
                     || tryParseTransformOptions()) {
@@ -301,6 +387,12 @@ public class BuildOptionParser {
     }
 
     public String format() {
+        try {
+            restartTracking();
+            parseAll();
+        } catch (BuildOptionParseException e) {
+            // Continue despite exception, canonical form is available up to the error
+        }
         return lx.asString();
     }
 }
@@ -26,19 +26,31 @@ class Lexer {
     int lexEnd; // end index (exclusive) of current token
     int pos; // begin index of next token
 
+    // Whether canonical form and path are tracked.  Without tracking, tokens are only
+    // delimited by offsets and errors carry no context, so that lexing allocates nothing.
+    private final boolean tracking;
+
     // For making canonical form on the fly
-    private final StringBuilder canonicalForm = new StringBuilder();
+    private final StringBuilder canonicalForm;
     private String currentToken; // last token that has not yet been added to cannonicalForm
     private int indentLevel;
     private boolean whiteSpaceBefore; // white space is expected before current token
     private boolean newLineBefore; // new line is expected before current token
 
     // For error reporting
-    private Deque<String> path = new ArrayDeque<>();
-    private Deque<Integer> pathForks = new ArrayDeque<>();
+    private final Deque<String> path;
+    private final Deque<Integer> pathForks;
 
     public Lexer(String str) throws BuildOptionParseException {
+        this(str, true);
+    }
+
+    public Lexer(String str, boolean tracking) throws BuildOptionParseException {
         this.str = str + '$';
+        this.tracking = tracking;
+        this.canonicalForm = tracking ? new StringBuilder() : null;
+        this.path = tracking ? new ArrayDeque<>() : null;
+        this.pathForks = tracking ? new ArrayDeque<>() : null;
         eoi = str.length();
         // Reject TABs upfront so that we don't need to care about them in the parser code
         if (str.indexOf('\t') >= 0) {
@@ -50,6 +62,9 @@ class Lexer {
     }
 
     private BuildOptionParseException lexicalError(String msg) throws BuildOptionParseException {
+        if (!tracking) {
+            throw new BuildOptionParseException(msg);
+        }
 
         appendTokenToCanonicalForm();
         int errPos = pos;
@@ -72,6 +87,9 @@ class Lexer {
     }
 
     public BuildOptionParseException error(String msg) throws BuildOptionParseException {
+        if (!tracking) {
+            throw new BuildOptionParseException(msg);
+        }
 
         appendTokenToCanonicalForm();
         // For syntax errors, error location is the first character of the last lexeme.
@@ -196,8 +214,10 @@ class Lexer {
             lexicalError("Lexical error: illegal character");
         }
         lexEnd = pos;
-        appendTokenToCanonicalForm();
-        currentToken = str.substring(lexBeg, lexEnd);
+        if (tracking) {
+            appendTokenToCanonicalForm();
+            currentToken = str.substring(lexBeg, lexEnd);
+        }
         lookahead();
         return this;
     }
@@ -205,7 +225,9 @@ class Lexer {
     // Is current token a specific keyword?
     public boolean isKeyword(String kw) {
         if (kw.length() == lexEnd - lexBeg && str.regionMatches(lexBeg, kw, 0, lexEnd - lexBeg)) {
-            path.addLast(currentToken);
+            if (tracking) {
+                path.addLast(currentToken);
+            }
             return true;
         }
         return false;
@@ -216,7 +238,9 @@ class Lexer {
         if (str.charAt(lexBeg) != '"') {
             error("Syntax error: expected literal (quoted string)");
         }
-        path.addLast(currentToken);
+        if (tracking) {
+            path.addLast(currentToken);
+        }
         return str.substring(lexBeg + 1, lexEnd - 1);
     }
 
@@ -229,11 +253,16 @@ class Lexer {
         if (str.charAt(lexBeg) != '{') {
             error("Syntax error: expected opening brace '{'");
         }
-        path.addLast("->");
-        markPathFork();
+        if (tracking) {
+            path.addLast("->");
+            markPathFork();
+        }
     }
 
     private boolean pathUnwind(boolean reset) {
+        if (!tracking) {
+            return reset;
+        }
         int mark = pathForks.size() > 0 ? pathForks.removeLast() : 0;
         boolean dots = false;
         while (path.size() > mark) {
@@ -268,6 +297,9 @@ class Lexer {
 
     // Return parsed code as formatted string, in canonical form.
     public String asString() {
+        if (!tracking) {
+            throw new IllegalStateException("Canonical form is not tracked");
+        }
         return canonicalForm.toString();
     }
 }
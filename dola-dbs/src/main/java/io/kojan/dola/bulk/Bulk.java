@@ -0,0 +1,96 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.bulk;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command-line entry point of {@link BulkProcessor}.
+ *
+ * <p>Without {@code --write} specs are only checked and exit status is non-zero if any of them is
+ * not in canonical form. Invalid specs always cause non-zero exit status.
+ */
+public class Bulk {
+    private static void usage() {
+        System.err.println("Usage: Bulk [options] <directory>");
+        System.err.println("  -w, --write          rewrite specs whose canonical form differs");
+        System.err.println("  -o, --convert <dir>  write build scripts converted by Imperator");
+        System.err.println("  -c, --cache <file>   skip specs unchanged since previous run");
+        System.err.println("  -j, --jobs <n>       number of worker threads");
+        System.err.println("      --inline-files   inline %files sections");
+        System.err.println("      --sort-tags      sort tags");
+        System.err.println("      --sort-deps      sort dependencies");
+        System.exit(2);
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            usage();
+        }
+        return args[i];
+    }
+
+    public static void main(String[] args) throws Exception {
+        BulkProcessor processor = new BulkProcessor();
+        Path root = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-w", "--write" -> processor.optWrite = true;
+                case "-o", "--convert" -> processor.optConvertDir = Path.of(value(args, ++i));
+                case "-c", "--cache" -> processor.optCacheFile = Path.of(value(args, ++i));
+                case "-j", "--jobs" ->
+                        processor.optParallelism = Integer.parseInt(value(args, ++i));
+                case "--inline-files" -> processor.optInlineFiles = true;
+                case "--sort-tags" -> processor.optSortTags = true;
+                case "--sort-deps" -> processor.optSortDeps = true;
+                default -> {
+                    if (arg.startsWith("-") || root != null) {
+                        usage();
+                    }
+                    root = Path.of(arg);
+                }
+            }
+        }
+        if (root == null) {
+            usage();
+        }
+
+        List<BulkResult> results = processor.process(root);
+        Map<BulkResult.Status, Integer> counts = new EnumMap<>(BulkResult.Status.class);
+        for (BulkResult result : results) {
+            counts.merge(result.getStatus(), 1, Integer::sum);
+            if (result.getStatus() == BulkResult.Status.CHANGED
+                    || result.getStatus() == BulkResult.Status.INVALID) {
+                System.out.println(result);
+            }
+        }
+        int changed = counts.getOrDefault(BulkResult.Status.CHANGED, 0);
+        int invalid = counts.getOrDefault(BulkResult.Status.INVALID, 0);
+        System.err.printf(
+                "%d specs: %d skipped, %d unchanged, %d %s, %d invalid%n",
+                results.size(),
+                counts.getOrDefault(BulkResult.Status.SKIPPED, 0),
+                counts.getOrDefault(BulkResult.Status.UNCHANGED, 0),
+                changed,
+                processor.optWrite ? "rewritten" : "not canonical",
+                invalid);
+        System.exit(invalid > 0 || (changed > 0 && !processor.optWrite) ? 1 : 0);
+    }
+}
@@ -0,0 +1,106 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.bulk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content-hash cache of spec files that were found valid and canonical.
+ *
+ * <p>The cache file uses the same format as {@code sha256sum} output, preceded by a comment line
+ * recording processing options. Cache recorded with different options is discarded as a whole.
+ */
+class BulkCache {
+    private final String options;
+    private final Map<String, String> previous;
+    private final Map<String, String> current = new ConcurrentHashMap<>();
+
+    private BulkCache(String options, Map<String, String> previous) {
+        this.options = options;
+        this.previous = previous;
+    }
+
+    static BulkCache empty(String options) {
+        return new BulkCache(options, Map.of());
+    }
+
+    static BulkCache load(Path cacheFile, String options) throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        if (Files.isRegularFile(cacheFile)) {
+            List<String> lines = Files.readAllLines(cacheFile);
+            if (!lines.isEmpty() && lines.getFirst().equals("# " + options)) {
+                for (String line : lines.subList(1, lines.size())) {
+                    int sep = line.indexOf("  ");
+                    if (sep > 0) {
+                        entries.put(line.substring(sep + 2), line.substring(0, sep));
+                    }
+                }
+            }
+        }
+        return new BulkCache(options, entries);
+    }
+
+    static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static String hex(MessageDigest md) {
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    static String hash(String content) {
+        MessageDigest md = digest();
+        md.update(content.getBytes(StandardCharsets.UTF_8));
+        return hex(md);
+    }
+
+    /** Whether given file content was recorded as valid and canonical in previous run. */
+    boolean isUpToDate(String path, String hash) {
+        if (hash.equals(previous.get(path))) {
+            current.put(path, hash);
+            return true;
+        }
+        return false;
+    }
+
+    void put(String path, String hash) {
+        current.put(path, hash);
+    }
+
+    void save(Path cacheFile) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# " + options);
+        for (Map.Entry<String, String> entry : new TreeMap<>(current).entrySet()) {
+            lines.add(entry.getValue() + "  " + entry.getKey());
+        }
+        Files.write(cacheFile, lines);
+    }
+}
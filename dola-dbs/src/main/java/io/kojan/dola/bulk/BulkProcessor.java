@@ -0,0 +1,291 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.bulk;
+
+import io.kojan.dola.build.DeclarativeBuild;
+import io.kojan.dola.build.parser.BuildOptionParseException;
+import io.kojan.dola.build.parser.BuildOptionParser;
+import io.kojan.dola.imperator.Imperator;
+import io.kojan.dola.spec.BuildOpt;
+import io.kojan.dola.spec.BuildSys;
+import io.kojan.dola.spec.Spec;
+import io.kojan.dola.spec.generator.DSG;
+import io.kojan.dola.spec.parser.DSP;
+import io.kojan.dola.spec.parser.SpecParseException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Processes a whole directory tree of declarative specs in parallel.
+ *
+ * <p>Each {@code *.spec} file is parsed with {@link DSP}, its build options are validated with
+ * {@link BuildOptionParser}, it is canonicalized with {@link DSG} and, if it uses a build system,
+ * converted to imperative build scripts with {@link Imperator}. Work is split per directory and
+ * per file on a fork-join pool. Files whose content hash matches the cache are skipped without
+ * being parsed, and only files whose content differs from the newly generated one are written.
+ */
+public class BulkProcessor {
+    /** Whether specs whose canonical form differs should be rewritten in place. */
+    public boolean optWrite;
+
+    /** Directory where converted build scripts are written, or {@code null} not to convert. */
+    public Path optConvertDir;
+
+    /**
+     * Content-hash cache file, or {@code null} not to use cache. Specs skipped thanks to the cache
+     * are not converted again, their build scripts are expected to be present from previous run.
+     */
+    public Path optCacheFile;
+
+    /** Number of worker threads. */
+    public int optParallelism = Runtime.getRuntime().availableProcessors();
+
+    /** Passed to {@link DSG#optInlineFiles}. */
+    public boolean optInlineFiles;
+
+    /** Passed to {@link DSG#optSortTags}. */
+    public boolean optSortTags;
+
+    /** Passed to {@link DSG#optSortDeps}. */
+    public boolean optSortDeps;
+
+    private String options() {
+        return String.join(
+                " ",
+                "convert=" + optConvertDir,
+                "inlineFiles=" + optInlineFiles,
+                "sortTags=" + optSortTags,
+                "sortDeps=" + optSortDeps);
+    }
+
+    /** Processes all specs found under given directory, returning results sorted by path. */
+    public List<BulkResult> process(Path root) throws IOException {
+        BulkCache cache =
+                optCacheFile != null
+                        ? BulkCache.load(optCacheFile, options())
+                        : BulkCache.empty(options());
+        Queue<BulkResult> results = new ConcurrentLinkedQueue<>();
+        ForkJoinPool pool = new ForkJoinPool(optParallelism);
+        try {
+            pool.invoke(new DirectoryTask(root, root, cache, results));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        if (optCacheFile != null) {
+            cache.save(optCacheFile);
+        }
+        List<BulkResult> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparing(BulkResult::getPath));
+        return sorted;
+    }
+
+    private class DirectoryTask extends RecursiveAction {
+        private final Path root;
+        private final Path dir;
+        private final BulkCache cache;
+        private final Queue<BulkResult> results;
+
+        DirectoryTask(Path root, Path dir, BulkCache cache, Queue<BulkResult> results) {
+            this.root = root;
+            this.dir = dir;
+            this.cache = cache;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            List<RecursiveAction> tasks = new ArrayList<>();
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+                for (Path path : ds) {
+                    if (Files.isDirectory(path)) {
+                        tasks.add(new DirectoryTask(root, path, cache, results));
+                    } else if (path.getFileName().toString().endsWith(".spec")
+                            && Files.isRegularFile(path)) {
+                        tasks.add(new FileTask(root, path, cache, results));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    private class FileTask extends RecursiveAction {
+        private final Path root;
+        private final Path file;
+        private final BulkCache cache;
+        private final Queue<BulkResult> results;
+
+        FileTask(Path root, Path file, BulkCache cache, Queue<BulkResult> results) {
+            this.root = root;
+            this.file = file;
+            this.cache = cache;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                results.add(processFile(root.relativize(file), file, cache));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private BulkResult processFile(Path rel, Path file, BulkCache cache) throws IOException {
+        String content = Files.readString(file);
+        String key = rel.toString();
+        if (cache.isUpToDate(key, BulkCache.hash(content))) {
+            return new BulkResult(rel, BulkResult.Status.SKIPPED, null);
+        }
+
+        Spec spec;
+        List<String> scripts = null;
+        try {
+            spec = new DSP(content).parseSpec();
+            BuildSys buildSys = spec.getMainPkg().getBuildSys();
+            if (buildSys != null) {
+                scripts = convert(spec.getMainPkg().getName(), buildSys);
+            }
+        } catch (SpecParseException | BuildOptionParseException e) {
+            return new BulkResult(rel, BulkResult.Status.INVALID, e.getMessage());
+        } catch (Exception e) {
+            return new BulkResult(rel, BulkResult.Status.INVALID, "Conversion failed: " + e);
+        }
+
+        // Canonical form is compared with file content while it is being generated and it is
+        // generated once more straight to the file only if it differs
+        ContentMatcher matcher = new ContentMatcher(content);
+        newGenerator().generate(spec, matcher);
+
+        if (optConvertDir != null && scripts != null) {
+            String name = rel.getFileName().toString().replaceAll("\\.spec$", ".inc");
+            Path out = optConvertDir.resolve(rel).resolveSibling(name);
+            Files.createDirectories(out.getParent());
+            writeIfDifferent(out, String.join("\n", scripts) + "\n");
+        }
+
+        if (matcher.matches()) {
+            cache.put(key, BulkCache.hash(content));
+            return new BulkResult(rel, BulkResult.Status.UNCHANGED, null);
+        }
+        if (optWrite) {
+            MessageDigest md = BulkCache.digest();
+            try (Writer writer =
+                    new BufferedWriter(
+                            new OutputStreamWriter(
+                                    new DigestOutputStream(Files.newOutputStream(file), md),
+                                    StandardCharsets.UTF_8))) {
+                newGenerator().generate(spec, writer);
+            }
+            cache.put(key, BulkCache.hex(md));
+        }
+        return new BulkResult(rel, BulkResult.Status.CHANGED, null);
+    }
+
+    private DSG newGenerator() {
+        DSG dsg = new DSG();
+        dsg.optInlineFiles = optInlineFiles;
+        dsg.optSortTags = optSortTags;
+        dsg.optSortDeps = optSortDeps;
+        dsg.optSortScripts = true;
+        return dsg;
+    }
+
+    // Compares streamed output with expected content, without buffering the output
+    private static class ContentMatcher implements Appendable {
+        private final String content;
+        private int pos;
+        private boolean mismatch;
+
+        ContentMatcher(String content) {
+            this.content = content;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            for (int i = start; i < end && !mismatch; i++) {
+                append(csq.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            if (pos >= content.length() || content.charAt(pos++) != c) {
+                mismatch = true;
+            }
+            return this;
+        }
+
+        boolean matches() {
+            return !mismatch && pos == content.length();
+        }
+    }
+
+    // Converts declarative build options into imperative sections, which can be included
+    // in a spec in place of BuildSystem and BuildOption tags
+    private static List<String> convert(String rpmName, BuildSys buildSys) throws Exception {
+        StringBuilder dslBuilder = new StringBuilder();
+        for (BuildOpt buildOpt : buildSys.getBuildOpts()) {
+            dslBuilder.append(buildOpt.getOpt()).append('\n');
+        }
+        DeclarativeBuild db = new BuildOptionParser(rpmName, dslBuilder.toString()).parse();
+        // Bootstrap mode is not known outside of rpmbuild, let Imperator emit conditionals
+        Imperator imperator = new Imperator(db, null);
+        List<String> lines = new ArrayList<>();
+        lines.add("%generate_buildrequires");
+        lines.addAll(imperator.buildrequires());
+        lines.add("");
+        lines.add("%build");
+        lines.addAll(imperator.build());
+        lines.add("");
+        lines.add("%install");
+        lines.addAll(imperator.install());
+        return lines;
+    }
+
+    private static void writeIfDifferent(Path path, String content) throws IOException {
+        if (!Files.isRegularFile(path) || !Files.readString(path).equals(content)) {
+            Files.writeString(path, content);
+        }
+    }
+}
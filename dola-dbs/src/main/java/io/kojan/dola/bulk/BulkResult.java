@@ -0,0 +1,61 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.bulk;
+
+import java.nio.file.Path;
+
+/** Outcome of processing a single spec file by {@link BulkProcessor}. */
+public class BulkResult {
+    public enum Status {
+        /** Content hash matched the cache, the file was not parsed at all. */
+        SKIPPED,
+        /** The spec is valid and already in canonical form. */
+        UNCHANGED,
+        /** The spec is valid, but its canonical form differs from file content. */
+        CHANGED,
+        /** The spec could not be parsed or its build options are not valid. */
+        INVALID,
+    }
+
+    private final Path path;
+    private final Status status;
+    private final String message;
+
+    BulkResult(Path path, Status status, String message) {
+        this.path = path;
+        this.status = status;
+        this.message = message;
+    }
+
+    /** Path of the spec file, relative to the processed directory. */
+    public Path getPath() {
+        return path;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /** Error message of an invalid spec, or {@code null}. */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return message != null ? path + ": " + status + ": " + message : path + ": " + status;
+    }
+}
@@ -0,0 +1,127 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.dbs;
+
+import io.kojan.dola.imperator.Imperator;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
+
+/**
+ * Scripts rendered from build options, which can be cached in a file so that rpmbuild invocations
+ * after the first one, such as further rounds of dynamic BuildRequires or short-circuit builds, do
+ * not need to parse build options and render scripts again.
+ */
+class BuildPlan {
+    final String buildrequires;
+    final String build;
+    final String install;
+
+    private BuildPlan(String buildrequires, String build, String install) {
+        this.buildrequires = buildrequires;
+        this.build = build;
+        this.install = install;
+    }
+
+    static BuildPlan render(Imperator imperator) throws Exception {
+        return new BuildPlan(
+                String.join("\n", imperator.buildrequires()),
+                String.join("\n", imperator.build()),
+                String.join("\n", imperator.install()));
+    }
+
+    /**
+     * Computes cache key from everything rendered scripts depend on, including Dola itself, which
+     * may get updated in buildroot between rpmbuild invocations.
+     */
+    static String key(String rpmName, String buildOptions, boolean withBootstrap) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(rpmName).append('\n');
+        sb.append(withBootstrap).append('\n');
+        URL location = BuildPlan.class.getProtectionDomain().getCodeSource().getLocation();
+        try {
+            Path p = Path.of(location.toURI());
+            sb.append(p).append(' ').append(Files.size(p)).append(' ');
+            sb.append(Files.getLastModifiedTime(p));
+        } catch (Exception e) {
+            sb.append(location);
+        }
+        sb.append('\n');
+        sb.append(buildOptions);
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Loads plan cached under given key, or returns {@code null} if there is none. */
+    static BuildPlan load(Path cacheFile, String key) {
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(cacheFile)) {
+            props.load(reader);
+        } catch (IOException e) {
+            return null;
+        }
+        String buildrequires = props.getProperty("buildrequires");
+        String build = props.getProperty("build");
+        String install = props.getProperty("install");
+        if (!key.equals(props.getProperty("key"))
+                || buildrequires == null
+                || build == null
+                || install == null) {
+            return null;
+        }
+        return new BuildPlan(buildrequires, build, install);
+    }
+
+    /**
+     * Stores plan under given key, replacing cache file atomically, so that concurrent readers
+     * never see it partially written.
+     */
+    void store(Path cacheFile, String key) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("key", key);
+        props.setProperty("buildrequires", buildrequires);
+        props.setProperty("build", build);
+        props.setProperty("install", install);
+        Path dir = cacheFile.toAbsolutePath().getParent();
+        Path tempFile = Files.createTempFile(dir, ".dola-plan-", ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempFile)) {
+                props.store(writer, "Dola build plan");
+            }
+            Files.move(
+                    tempFile,
+                    cacheFile,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
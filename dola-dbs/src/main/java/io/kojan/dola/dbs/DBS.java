@@ -16,20 +16,30 @@
 package io.kojan.dola.dbs;
 
 import static io.kojan.dola.rpm.RPM.rpmExpand;
+import static io.kojan.dola.rpm.RPM.rpmExpandAll;
 
 import io.kojan.dola.build.DeclarativeBuild;
 import io.kojan.dola.build.parser.BuildOptionParseException;
 import io.kojan.dola.build.parser.BuildOptionParser;
 import io.kojan.dola.imperator.Imperator;
-import java.util.stream.Collectors;
+import io.kojan.dola.rpm.Memory;
+import io.kojan.dola.rpm.RPM;
+import java.io.IOException;
+import java.nio.file.Path;
 
 public class DBS {
-    private static Imperator imperator;
+    // Kept per rpm session, as the same JVM may serve multiple builds
+    private static class State {
+        final boolean debugEnabled = "1".equals(rpmExpand("%{dola_debug}"));
+        BuildPlan plan;
+    }
 
-    private static final boolean debugEnabled = "1".equals(rpmExpand("%{dola_debug}"));
+    private static State state() {
+        return RPM.sessionObject(State.class, State::new);
+    }
 
     private static void debug(Object... msg) {
-        if (debugEnabled) {
+        if (state().debugEnabled) {
             System.err.print("DOLA: ");
             for (Object s : msg) {
                 System.err.print(s.toString());
@@ -42,10 +52,28 @@ public class DBS {
         String rpmName = rpmExpand("%{name}");
         StringBuilder dslBuilder = new StringBuilder();
         int n = Integer.parseInt(rpmExpand("%#"));
+        String[] args = new String[Math.max(n - 1, 0)];
         for (int i = 2; i <= n; i++) {
-            dslBuilder.append(rpmExpand("%" + i)).append('\n');
+            args[i - 2] = "%" + i;
+        }
+        for (String line : rpmExpandAll(args)) {
+            dslBuilder.append(line).append('\n');
+        }
+        String dsl = dslBuilder.toString();
+        boolean withBootstrap = !rpmExpand("%{with bootstrap}").equals("0");
+
+        String cacheFile = rpmExpand("%{?__dola_plan_cache_file}");
+        String key = BuildPlan.key(rpmName, dsl, withBootstrap);
+        if (!cacheFile.isEmpty()) {
+            BuildPlan plan = BuildPlan.load(Path.of(cacheFile), key);
+            if (plan != null) {
+                debug("Loaded build plan from ", cacheFile);
+                state().plan = plan;
+                return "";
+            }
         }
-        BuildOptionParser parser = new BuildOptionParser(rpmName, dslBuilder.toString());
+
+        BuildOptionParser parser = new BuildOptionParser(rpmName, dsl);
         DeclarativeBuild db;
         try {
             db = parser.parse();
@@ -55,32 +83,43 @@ public class DBS {
             System.err.println("Dola was unable to parse specified BuildOption.");
             System.err.println("The build cannot continue.");
             System.err.println("Please fix BuildOption syntax.");
-            System.exit(66);
+            RPM.exit(66);
             throw e;
         }
 
-        boolean withBootstrap = !rpmExpand("%{with bootstrap}").equals("0");
-
-        imperator = new Imperator(db, withBootstrap);
+        BuildPlan plan = BuildPlan.render(new Imperator(db, withBootstrap));
+        state().plan = plan;
+        if (!cacheFile.isEmpty()) {
+            try {
+                plan.store(Path.of(cacheFile), key);
+                debug("Stored build plan in ", cacheFile);
+            } catch (IOException e) {
+                // Continue despite exception, build directory may not exist yet
+                debug("Unable to store build plan in ", cacheFile, ": ", e);
+            }
+        }
 
         return "";
     }
 
     public static String buildrequires() throws Exception {
-        String out = imperator.buildrequires().stream().collect(Collectors.joining("\n"));
+        String out = state().plan.buildrequires;
         debug("Output buildrequires script:\n", out);
         return out;
     }
 
     public static String build() throws Exception {
-        String out = imperator.build().stream().collect(Collectors.joining("\n"));
+        String out = state().plan.build;
         debug("Output build script:\n", out);
         return out;
     }
 
     public static String install() throws Exception {
-        String out = imperator.install().stream().collect(Collectors.joining("\n"));
+        String out = state().plan.install;
         debug("Output install script:\n", out);
+        // Install is the last phase, build plan is not needed any longer
+        state().plan = null;
+        Memory.release("install");
         return out;
     }
 }
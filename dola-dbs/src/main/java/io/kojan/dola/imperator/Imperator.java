@@ -82,6 +82,20 @@ public class Imperator {
         return args;
     }
 
+    private List<String> getParallelArgs() {
+        List<String> args = new ArrayList<>();
+        if (ctx.isParallelBuild()) {
+            String ncpus = "%{_smp_build_ncpus}";
+            int cap = ctx.getParallelBuildCap();
+            if (cap > 0) {
+                args.add("-T %[" + ncpus + " < " + cap + " ? " + ncpus + " : " + cap + "]");
+            } else {
+                args.add("-T " + ncpus);
+            }
+        }
+        return args;
+    }
+
     private List<String> getTestArgs() {
         List<String> args = new ArrayList<>();
         args.add("-Dsurefire.reportFormat=plain");
@@ -93,9 +107,35 @@ public class Imperator {
             args.add("-Dsurefire.failIfNoSpecifiedTests=false");
             args.add("-Dtest='" + exclArg + "'");
         }
+        String ncpus = "%{_smp_build_ncpus}";
+        String forkCount = ctx.getTestForkCount();
+        if (forkCount != null) {
+            // Surefire would scale "C" by all host CPUs, not just those available to the build
+            if (forkCount.equals("1C")) {
+                forkCount = ncpus;
+            } else if (forkCount.endsWith("C")) {
+                String factor = forkCount.substring(0, forkCount.length() - 1);
+                forkCount = "%[" + factor + " * " + ncpus + "]";
+            }
+            args.add("-DforkCount=" + forkCount);
+        }
+        if (ctx.isTestReuseForks()) {
+            args.add("-DreuseForks=true");
+        }
+        if (ctx.getTestParallel() != null) {
+            args.add("-Dparallel=" + ctx.getTestParallel());
+            args.add("-DperCoreThreadCount=false");
+            args.add("-DthreadCount=" + ncpus);
+        }
         return args;
     }
 
+    private boolean hasTestOptions() {
+        return ctx.getTestForkCount() != null
+                || ctx.getTestParallel() != null
+                || ctx.isTestReuseForks();
+    }
+
     public List<String> buildrequires() throws Exception {
         List<String> lines = new ArrayList<>();
 
@@ -182,6 +222,7 @@ public class Imperator {
             args.add("--show-version");
             args.add("--batch-mode");
             args.add("--offline");
+            args.addAll(getParallelArgs());
             String extCp = "/usr/share/java/dola-gleaner/dola-gleaner.jar";
             if (!ctx.getTransformOptions().isEmpty()) {
                 extCp += ":/usr/share/java/dola-transformer/dola-transformer.jar";
@@ -220,6 +261,7 @@ public class Imperator {
         args.add("--show-version");
         args.add("--batch-mode");
         args.add("--offline");
+        args.addAll(getParallelArgs());
         if (!ctx.getTransformOptions().isEmpty()) {
             String extCp = "/usr/share/java/dola-transformer/dola-transformer.jar";
             args.add("-Dmaven.ext.class.path=" + extCp);
@@ -238,7 +280,23 @@ public class Imperator {
 
         List<String> lines = new ArrayList<>();
         lines.add("# Run the actual Maven build, executing all build plugins and so on.");
+        if (ctx.isSkipTests() || !hasTestOptions()) {
+            lines.add(args.stream().collect(Collectors.joining(" \\\n    ")));
+            return lines;
+        }
+
+        args.add("|| dola_status=$?");
+        lines.add("dola_status=0");
         lines.add(args.stream().collect(Collectors.joining(" \\\n    ")));
+        lines.add("# Print time spent in test classes, slowest first, so that it can be seen");
+        lines.add("# which tests dominate build time.  Build status is kept afterwards.");
+        lines.add("echo 'Slowest test classes (seconds):'");
+        lines.add(
+                "find . -path '*/surefire-reports/TEST-*.xml' -exec awk -F'\"' \\\n"
+                        + "    '/<testsuite /{for(i=1;i<NF;i++){if($i~/ name=$/)n=$(i+1);"
+                        + "if($i~/ time=$/)t=$(i+1)};gsub(\",\",\"\",t);print t,n;exit}' \\\n"
+                        + "    {} \\; | sort -rn | head -n 20 || :");
+        lines.add("(exit $dola_status)");
 
         return lines;
     }
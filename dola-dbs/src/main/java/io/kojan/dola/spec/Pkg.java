@@ -26,7 +26,7 @@ public class Pkg {
     private final List<String> files;
     private final List<String> mfiles;
 
-    private Pkg(
+    Pkg(
             String name,
             BuildSys buildSys,
             List<Tag> tags,
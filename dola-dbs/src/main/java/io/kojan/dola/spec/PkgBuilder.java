@@ -0,0 +1,96 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.spec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PkgBuilder {
+
+    private final String name;
+    private BuildSys buildSys;
+    private final List<Tag> tags = new ArrayList<>();
+    private final List<CondDep> deps = new ArrayList<>();
+    private final List<String> description = new ArrayList<>();
+    private List<String> files;
+    private final List<String> mfiles = new ArrayList<>();
+
+    public PkgBuilder(String name) {
+        this.name = name;
+    }
+
+    public PkgBuilder buildSys(BuildSys buildSys) {
+        this.buildSys = buildSys;
+        return this;
+    }
+
+    public PkgBuilder tag(Tag tag) {
+        tags.add(tag);
+        return this;
+    }
+
+    public PkgBuilder tags(List<Tag> tags) {
+        this.tags.addAll(tags);
+        return this;
+    }
+
+    public PkgBuilder dep(CondDep dep) {
+        deps.add(dep);
+        return this;
+    }
+
+    public PkgBuilder deps(List<CondDep> deps) {
+        this.deps.addAll(deps);
+        return this;
+    }
+
+    public PkgBuilder description(List<String> description) {
+        this.description.addAll(description);
+        return this;
+    }
+
+    public PkgBuilder file(String file) {
+        if (files == null) {
+            files = new ArrayList<>();
+        }
+        files.add(file);
+        return this;
+    }
+
+    public PkgBuilder files(List<String> files) {
+        if (this.files == null) {
+            this.files = new ArrayList<>();
+        }
+        this.files.addAll(files);
+        return this;
+    }
+
+    public PkgBuilder mfile(String mfile) {
+        mfiles.add(mfile);
+        return this;
+    }
+
+    public Pkg build() {
+        return new Pkg(
+                name,
+                buildSys,
+                List.copyOf(tags),
+                List.copyOf(deps),
+                List.copyOf(description),
+                files != null ? List.copyOf(files) : null,
+                List.copyOf(mfiles));
+    }
+}
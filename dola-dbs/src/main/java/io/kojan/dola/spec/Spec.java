@@ -26,7 +26,7 @@ public class Spec {
     private final Map<ScriptType, Script> scripts;
     private final List<String> changelog;
 
-    private Spec(
+    Spec(
             List<MacroDef> macros,
             Pkg mainPkg,
             List<Pkg> subpkgs,
@@ -45,17 +45,11 @@ public class Spec {
             List<Pkg> subpkgs,
             Map<ScriptType, Script> scripts,
             List<String> changelog) {
-        for (Pkg pkg : subpkgs) {
-            if (pkg.getFiles() == null) {
-                throw new IllegalStateException("Incomplete files for pkg " + pkg.getName());
-            }
-        }
-        return new Spec(
-                List.copyOf(macros),
-                mainPkg,
-                List.copyOf(subpkgs),
-                Map.copyOf(scripts),
-                List.copyOf(changelog));
+        SpecBuilder builder = new SpecBuilder().mainPkg(mainPkg).changelog(changelog);
+        macros.forEach(builder::macro);
+        subpkgs.forEach(builder::subpkg);
+        scripts.values().forEach(builder::script);
+        return builder.build();
     }
 
     public List<MacroDef> getMacros() {
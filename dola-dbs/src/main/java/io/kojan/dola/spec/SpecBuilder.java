@@ -0,0 +1,70 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.spec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SpecBuilder {
+
+    private final List<MacroDef> macros = new ArrayList<>();
+    private Pkg mainPkg;
+    private final List<Pkg> subpkgs = new ArrayList<>();
+    private final Map<ScriptType, Script> scripts = new LinkedHashMap<>();
+    private final List<String> changelog = new ArrayList<>();
+
+    public SpecBuilder macro(MacroDef macro) {
+        macros.add(macro);
+        return this;
+    }
+
+    public SpecBuilder mainPkg(Pkg mainPkg) {
+        this.mainPkg = mainPkg;
+        return this;
+    }
+
+    public SpecBuilder subpkg(Pkg subpkg) {
+        subpkgs.add(subpkg);
+        return this;
+    }
+
+    public SpecBuilder script(Script script) {
+        scripts.put(script.getType(), script);
+        return this;
+    }
+
+    public SpecBuilder changelog(List<String> changelog) {
+        this.changelog.addAll(changelog);
+        return this;
+    }
+
+    public Spec build() {
+        for (Pkg pkg : subpkgs) {
+            if (pkg.getFiles() == null) {
+                throw new IllegalStateException("Incomplete files for pkg " + pkg.getName());
+            }
+        }
+        return new Spec(
+                List.copyOf(macros),
+                mainPkg,
+                List.copyOf(subpkgs),
+                Collections.unmodifiableMap(new LinkedHashMap<>(scripts)),
+                List.copyOf(changelog));
+    }
+}
@@ -25,6 +25,8 @@ import io.kojan.dola.spec.Script;
 import io.kojan.dola.spec.ScriptType;
 import io.kojan.dola.spec.Spec;
 import io.kojan.dola.spec.Tag;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -34,6 +36,8 @@ import java.util.Objects;
 
 public class DSG {
     private final StringBuilder sb = new StringBuilder();
+    // When streaming, completed sections are moved from sb to this sink
+    private Appendable out;
 
     // Put each %files right after corresponding %package and %description
     public boolean optInlineFiles;
@@ -48,6 +52,17 @@ public class DSG {
         sb.append('\n');
     }
 
+    private void flush() {
+        if (out != null) {
+            try {
+                out.append(sb);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            sb.setLength(0);
+        }
+    }
+
     private void genComment(List<String> comment) {
         for (String line : comment) {
             sb.append('#');
@@ -59,16 +74,9 @@ public class DSG {
     }
 
     private void genTags(List<Tag> tags) {
-        Comparator<Tag> tagCmp =
-                (a, b) -> {
-                    int pa = a.getPrecedence();
-                    int pb = b.getPrecedence();
-                    return Integer.compare(pa, pb);
-                };
-
         List<Tag> taga = new ArrayList<>(tags);
         if (optSortTags) {
-            Collections.sort(taga, tagCmp);
+            Collections.sort(taga, Comparator.comparingInt(Tag::getPrecedence));
         }
 
         boolean seenSource = false;
@@ -91,60 +99,69 @@ public class DSG {
         }
     }
 
-    private boolean isSpecialDep(Reldep r) {
+    private static boolean isSpecialDep(Reldep r) {
         return r.getName().startsWith("maven-local")
                 || r.getName().startsWith("javapackages-local")
                 || r.getName().startsWith("dola");
     }
 
-    private void genDeps(List<CondDep> deps) {
+    // Sort key of a dependency, computed once per dependency rather than in every comparison
+    private static class DepKey implements Comparable<DepKey> {
+        final CondDep dep;
+        final int prec;
+        final Condition cond;
+        final boolean special;
+        final boolean commented;
+        final String rpmStr;
 
-        Comparator<Condition> condCmp =
-                (a, b) -> {
-                    if (!a.getExpr().equals(b.getExpr())) {
-                        return a.getExpr().compareTo(b.getExpr());
-                    }
-                    return Boolean.compare(a.isNegated(), b.isNegated());
-                };
+        DepKey(CondDep dep) {
+            this.dep = dep;
+            this.prec = dep.getPrecedence();
+            this.cond = dep.getCondition();
+            this.special = isSpecialDep(dep.getReldep());
+            this.commented = !dep.getComment().isEmpty();
+            this.rpmStr = dep.getReldep().getRpmStr();
+        }
 
-        Comparator<CondDep> depCmp =
-                (a, b) -> {
-                    int pa = a.getPrecedence();
-                    int pb = b.getPrecedence();
-                    if (pa != pb) {
-                        return Integer.compare(pa, pb);
-                    }
-                    Condition ca = a.getCondition();
-                    Condition cb = b.getCondition();
-                    if (!Objects.equals(ca, cb)) {
-                        if (ca == null) {
-                            return -1;
-                        }
-                        if (cb == null) {
-                            return +1;
-                        }
-                        return condCmp.compare(ca, cb);
-                    }
-                    Reldep ra = a.getReldep();
-                    Reldep rb = b.getReldep();
-                    if (isSpecialDep(ra) != isSpecialDep(rb)) {
-                        if (isSpecialDep(ra)) {
-                            return -1;
-                        }
-                        return +1;
-                    }
-                    if (a.getComment().isEmpty() != b.getComment().isEmpty()) {
-                        if (a.getComment().isEmpty()) {
-                            return -1;
-                        }
-                        return +1;
-                    }
-                    return ra.getRpmStr().compareTo(rb.getRpmStr());
-                };
+        @Override
+        public int compareTo(DepKey o) {
+            if (prec != o.prec) {
+                return Integer.compare(prec, o.prec);
+            }
+            if (!Objects.equals(cond, o.cond)) {
+                if (cond == null) {
+                    return -1;
+                }
+                if (o.cond == null) {
+                    return +1;
+                }
+                if (!cond.getExpr().equals(o.cond.getExpr())) {
+                    return cond.getExpr().compareTo(o.cond.getExpr());
+                }
+                return Boolean.compare(cond.isNegated(), o.cond.isNegated());
+            }
+            if (special != o.special) {
+                return special ? -1 : +1;
+            }
+            if (commented != o.commented) {
+                return commented ? +1 : -1;
+            }
+            return rpmStr.compareTo(o.rpmStr);
+        }
+    }
 
-        List<CondDep> depa = new ArrayList<>(deps);
+    private void genDeps(List<CondDep> deps) {
+        List<CondDep> depa = deps;
         if (optSortDeps) {
-            Collections.sort(depa, depCmp);
+            List<DepKey> keys = new ArrayList<>(deps.size());
+            for (CondDep dep : deps) {
+                keys.add(new DepKey(dep));
+            }
+            Collections.sort(keys);
+            depa = new ArrayList<>(keys.size());
+            for (DepKey key : keys) {
+                depa.add(key.dep);
+            }
         }
 
         Condition cc = null;
@@ -200,6 +217,7 @@ public class DSG {
             sb.append(line);
             nl();
         }
+        flush();
     }
 
     private void genMainFiles(Pkg main) {
@@ -314,6 +332,21 @@ public class DSG {
         genSection(spec.getChangelog());
     }
 
+    /**
+     * Generates spec, streaming output to given sink as it is produced rather than accumulating
+     * it in memory. Output is appended section by section.
+     */
+    public void generate(Spec spec, Appendable out) throws IOException {
+        this.out = out;
+        try {
+            generate(spec);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            this.out = null;
+        }
+    }
+
     @Override
     public String toString() {
         return sb.toString();
@@ -21,16 +21,18 @@ import io.kojan.dola.spec.CondDep;
 import io.kojan.dola.spec.Condition;
 import io.kojan.dola.spec.MacroDef;
 import io.kojan.dola.spec.Pkg;
+import io.kojan.dola.spec.PkgBuilder;
 import io.kojan.dola.spec.Reldep;
 import io.kojan.dola.spec.Script;
 import io.kojan.dola.spec.ScriptType;
 import io.kojan.dola.spec.Spec;
+import io.kojan.dola.spec.SpecBuilder;
 import io.kojan.dola.spec.Tag;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.function.BiFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -46,6 +48,80 @@ public class DSP {
 
     private final boolean enableInlineBuildOptions = true;
 
+    private static class MacroKeyword {
+        final String format;
+        final boolean withValue;
+
+        MacroKeyword(String format, boolean withValue) {
+            this.format = format;
+            this.withValue = withValue;
+        }
+    }
+
+    private static class TagKeyword {
+        final int id;
+        final String name;
+        // Tag name is followed by a number, which is added to id
+        final boolean numbered;
+
+        TagKeyword(int id, String name, boolean numbered) {
+            this.id = id;
+            this.name = name;
+            this.numbered = numbered;
+        }
+    }
+
+    // Keywords are matched including the separator that follows, so that the longest match is
+    // always the right one, eg. "Source:" rather than "Source" followed by a number
+    private static final KeywordTrie<MacroKeyword> MACRO_KEYWORDS =
+            new KeywordTrie<MacroKeyword>()
+                    .add("%define ", new MacroKeyword("%%define %s %s", true))
+                    .add("%global ", new MacroKeyword("%%global %s %s", true))
+                    .add("%bcond ", new MacroKeyword("%%bcond %s %s", true))
+                    .add("%bcond_with ", new MacroKeyword("%%bcond_with %s", false))
+                    .add("%bcond_without ", new MacroKeyword("%%bcond_with %s", false));
+
+    private static final KeywordTrie<TagKeyword> PKG_TAGS = addPkgTags(new KeywordTrie<>());
+
+    private static final KeywordTrie<TagKeyword> GLOBAL_TAGS =
+            addPkgTags(new KeywordTrie<TagKeyword>())
+                    .add("URL:", new TagKeyword(7, "URL", false))
+                    .add("VCS:", new TagKeyword(8, "VCS", false))
+                    .add("ExclusiveArch:", new TagKeyword(10, "ExclusiveArch", false))
+                    .add("Source:", new TagKeyword(999, "Source", false))
+                    .add("Source", new TagKeyword(1000, "Source", true))
+                    .add("Patch:", new TagKeyword(9999, "Patch", false));
+
+    private static KeywordTrie<TagKeyword> addPkgTags(KeywordTrie<TagKeyword> trie) {
+        return trie.add("Epoch:", new TagKeyword(2, "Epoch", false))
+                .add("Version:", new TagKeyword(3, "Version", false))
+                .add("Release:", new TagKeyword(4, "Release", false))
+                .add("Summary:", new TagKeyword(5, "Summary", false))
+                .add("License:", new TagKeyword(6, "License", false))
+                .add("BuildArch:", new TagKeyword(9, "BuildArch", false));
+    }
+
+    private static final KeywordTrie<BiFunction<Reldep, List<String>, CondDep>> DEP_KEYWORDS =
+            new KeywordTrie<BiFunction<Reldep, List<String>, CondDep>>()
+                    .add("BuildRequires:", CondDep::ofBuildRequires)
+                    .add("Requires:", CondDep::ofRequires)
+                    .add("Provides:", CondDep::ofProvides)
+                    .add("Obsoletes:", CondDep::ofObsoletes)
+                    .add("Suggests:", CondDep::ofSuggests);
+
+    private static final KeywordTrie<ScriptType> SCRIPT_KEYWORDS = new KeywordTrie<>();
+
+    static {
+        for (ScriptType type : ScriptType.values()) {
+            SCRIPT_KEYWORDS.add("%" + type.getName() + "\n", type);
+        }
+    }
+
+    // End of section body, that is trailing comments followed by the next section or EOF
+    private static final Pattern SECTION_END =
+            Pattern.compile(
+                    "\n*(#.*\n)*($|%(if|else|endif|global|define|bcond|bcond_with|bcond_without|build|changelog|clean|conf|description|files|install|package|post|posttrans|postun|pre|prep|pretrans|preun|trigger[a-z]+|verifyscript|transfiletrigger[a-z]+|filetrigger[a-z]+)( .*)?\n)");
+
     public DSP(String s) {
         buf = s;
         pos = 0;
@@ -158,7 +234,7 @@ public class DSP {
     }
 
     private boolean has(String s) {
-        if (buf.substring(pos).startsWith(s)) {
+        if (buf.startsWith(s, pos)) {
             pos += s.length();
             return true;
         }
@@ -166,7 +242,9 @@ public class DSP {
     }
 
     private boolean hasTag(String tag) {
-        if (has(tag + ":")) {
+        int colon = pos + tag.length();
+        if (buf.startsWith(tag, pos) && colon < eof && buf.charAt(colon) == ':') {
+            pos = colon + 1;
             skipSpaceTab();
             return true;
         }
@@ -191,10 +269,16 @@ public class DSP {
         }
     }
 
-    private String parseUntil(Character... chars) throws SpecParseException {
-        Set<Character> cs = Set.of(chars);
+    private String parseUntil(char... chars) throws SpecParseException {
         int beg = pos;
-        while (pos < eof && !cs.contains(buf.charAt(pos))) {
+        scan:
+        while (pos < eof) {
+            char c = buf.charAt(pos);
+            for (char stop : chars) {
+                if (c == stop) {
+                    break scan;
+                }
+            }
             pos++;
         }
         if (pos == beg) {
@@ -252,15 +336,24 @@ public class DSP {
     // The entire RPM spec file.
     public Spec parseSpec() throws SpecParseException {
         initParser();
-        List<MacroDef> macroDefs = parseMacroDefs();
+        SpecBuilder spec = new SpecBuilder();
+        for (MacroDef macroDef : parseMacroDefs()) {
+            spec.macro(macroDef);
+        }
         Pkg mainPkg = parseMainPkg();
         List<Pkg> subpackages = parseSubpackages(mainPkg);
-        Map<ScriptType, Script> scripts = parseScripts();
+        for (Script script : parseScripts().values()) {
+            spec.script(script);
+        }
         mainPkg = parseMainFiles(mainPkg);
         parseSubFiles(mainPkg, subpackages);
-        List<String> changelog = parseChangelog();
+        spec.mainPkg(mainPkg);
+        for (Pkg subpackage : subpackages) {
+            spec.subpkg(subpackage);
+        }
+        spec.changelog(parseChangelog());
         parseEof();
-        return Spec.produce(macroDefs, mainPkg, subpackages, scripts, changelog);
+        return spec.build();
     }
 
     // Zero or more macro definitions, possibly surrounded by if/else
@@ -295,38 +388,21 @@ public class DSP {
 
     // A single macro definition (global, define, bcond*)
     private MacroDef tryParseMacroDef() throws SpecParseException {
-        if (has("%define ")) {
-            List<String> c = popComment();
-            String key = parseWord();
-            skipSpaceTab();
-            String val = parseUntilEol();
-            return MacroDef.of("%%define %s %s".formatted(key, val), c);
-        }
-        if (has("%global ")) {
-            List<String> c = popComment();
-            String key = parseWord();
-            skipSpaceTab();
-            String val = parseUntilEol();
-            return MacroDef.of("%%global %s %s".formatted(key, val), c);
-        }
-        if (has("%bcond ")) {
-            List<String> c = popComment();
-            String key = parseWord();
-            skipSpaceTab();
-            String val = parseUntilEol();
-            return MacroDef.of("%%bcond %s %s".formatted(key, val), c);
-        }
-        if (has("%bcond_with ")) {
-            List<String> c = popComment();
-            String key = parseUntilEol();
-            return MacroDef.of("%%bcond_with %s".formatted(key), c);
+        int k = MACRO_KEYWORDS.find(buf, pos);
+        if (k < 0) {
+            return null;
         }
-        if (has("%bcond_without ")) {
-            List<String> c = popComment();
+        pos += MACRO_KEYWORDS.length(k);
+        MacroKeyword keyword = MACRO_KEYWORDS.get(k);
+        List<String> c = popComment();
+        if (!keyword.withValue) {
             String key = parseUntilEol();
-            return MacroDef.of("%%bcond_with %s".formatted(key), c);
+            return MacroDef.of(keyword.format.formatted(key), c);
         }
-        return null;
+        String key = parseWord();
+        skipSpaceTab();
+        String val = parseUntilEol();
+        return MacroDef.of(keyword.format.formatted(key, val), c);
     }
 
     // Main package declaration, including global tags, dependencies and
@@ -337,11 +413,12 @@ public class DSP {
         BuildSys buildSystem = tryParseBuildSystem();
         List<String> description = parseDescriptionMain();
         String pkgName = tags.getFirst().getValue();
-        return Pkg.of(pkgName)
-                .withTags(tags)
-                .withDeps(deps)
-                .withBuildSys(buildSystem)
-                .withDescription(description);
+        return new PkgBuilder(pkgName)
+                .tags(tags)
+                .deps(deps)
+                .buildSys(buildSystem)
+                .description(description)
+                .build();
     }
 
     // One or more global tags.
@@ -370,76 +447,35 @@ public class DSP {
 
     // An RPM tag with String value that can appear in global context.
     private Tag tryParseGlobalTag() throws SpecParseException {
-        if (hasTag("URL")) {
-            List<String> c = popComment();
-            String val = parseUntilEol();
-            return Tag.of(7, "URL", val, c);
-        }
-        if (hasTag("VCS")) {
-            List<String> c = popComment();
-            String val = parseUntilEol();
-            return Tag.of(8, "VCS", val, c);
-        }
-        if (hasTag("ExclusiveArch")) {
-            List<String> c = popComment();
-            String val = parseUntilEol();
-            return Tag.of(10, "ExclusiveArch", val, c);
-        }
-        if (hasTag("Source")) {
-            List<String> c = popComment();
-            String val = parseUntilEol();
-            return Tag.of(999, "Source", val, c);
-        }
-        if (has("Source")) {
-            List<String> c = popComment();
-            int n = parseInt();
-            require(":");
-            skipSpaceTab();
-            String val = parseUntilEol();
-            return Tag.of(1000 + n, "Source" + n, val, c);
-        }
-        if (hasTag("Patch")) {
-            List<String> c = popComment();
-            String val = parseUntilEol();
-            return Tag.of(9999, "Patch", val, c);
-        }
-        return tryParsePkgTag();
+        return tryParseTag(GLOBAL_TAGS);
     }
 
     // An RPM tag with String value that can be applied to both main
     // package and subpackages.
     private Tag tryParsePkgTag() throws SpecParseException {
-        if (hasTag("Epoch")) {
-            List<String> c = popComment();
-            String val = parseUntilEol();
-            return Tag.of(2, "Epoch", val, c);
-        }
-        if (hasTag("Version")) {
-            List<String> c = popComment();
-            String val = parseUntilEol();
-            return Tag.of(3, "Version", val, c);
-        }
-        if (hasTag("Release")) {
-            List<String> c = popComment();
-            String val = parseUntilEol();
-            return Tag.of(4, "Release", val, c);
-        }
-        if (hasTag("Summary")) {
-            List<String> c = popComment();
-            String val = parseUntilEol();
-            return Tag.of(5, "Summary", val, c);
+        return tryParseTag(PKG_TAGS);
+    }
+
+    // A tag from given set.
+    private Tag tryParseTag(KeywordTrie<TagKeyword> tags) throws SpecParseException {
+        int k = tags.find(buf, pos);
+        if (k < 0) {
+            return null;
         }
-        if (hasTag("License")) {
-            List<String> c = popComment();
-            String val = parseUntilEol();
-            return Tag.of(6, "License", val, c);
+        pos += tags.length(k);
+        TagKeyword tag = tags.get(k);
+        if (!tag.numbered) {
+            skipSpaceTab();
         }
-        if (hasTag("BuildArch")) {
-            List<String> c = popComment();
-            String val = parseUntilEol();
-            return Tag.of(9, "BuildArch", val, c);
+        List<String> c = popComment();
+        int n = 0;
+        if (tag.numbered) {
+            n = parseInt();
+            require(":");
+            skipSpaceTab();
         }
-        return null;
+        String val = parseUntilEol();
+        return Tag.of(tag.id + n, tag.numbered ? tag.name + n : tag.name, val, c);
     }
 
     // Zero or more dependencies, possibly surrounded by if/else
@@ -481,32 +517,15 @@ public class DSP {
 
     // A single dependency, eg. Requires.
     private CondDep tryParseDep() throws SpecParseException {
-        if (hasTag("BuildRequires")) {
-            List<String> c = popComment();
-            Reldep reldep = parseReldep();
-            return CondDep.ofBuildRequires(reldep, c);
-        }
-        if (hasTag("Requires")) {
-            List<String> c = popComment();
-            Reldep reldep = parseReldep();
-            return CondDep.ofRequires(reldep, c);
-        }
-        if (hasTag("Provides")) {
-            List<String> c = popComment();
-            Reldep reldep = parseReldep();
-            return CondDep.ofProvides(reldep, c);
-        }
-        if (hasTag("Obsoletes")) {
-            List<String> c = popComment();
-            Reldep reldep = parseReldep();
-            return CondDep.ofObsoletes(reldep, c);
-        }
-        if (hasTag("Suggests")) {
-            List<String> c = popComment();
-            Reldep reldep = parseReldep();
-            return CondDep.ofSuggests(reldep, c);
+        int k = DEP_KEYWORDS.find(buf, pos);
+        if (k < 0) {
+            return null;
         }
-        return null;
+        pos += DEP_KEYWORDS.length(k);
+        skipSpaceTab();
+        List<String> c = popComment();
+        Reldep reldep = parseReldep();
+        return DEP_KEYWORDS.get(k).apply(reldep, c);
     }
 
     // A dependency string, aka "reldep". Can be a simple dependency
@@ -609,15 +628,18 @@ public class DSP {
             throw new IllegalStateException();
         }
 
-        Pattern p =
-                Pattern.compile(
-                        "\n*(#.*\n)*($|%(if|else|endif|global|define|bcond|bcond_with|bcond_without|build|changelog|clean|conf|description|files|install|package|post|posttrans|postun|pre|prep|pretrans|preun|trigger[a-z]+|verifyscript|transfiletrigger[a-z]+|filetrigger[a-z]+)( .*)?\n)");
-        Matcher m = p.matcher(buf.substring(pos));
-        if (!m.find()) {
-            parseError("Unable to determine section boundary");
+        // Same as find(), but the pattern is tried only where it can match, that is at one of
+        // characters it can start with, or at EOF, where it always matches
+        Matcher m = SECTION_END.matcher(buf);
+        int end = pos;
+        while (!m.region(end, eof).lookingAt()) {
+            end++;
+            while (end < eof && "\n#%".indexOf(buf.charAt(end)) < 0) {
+                end++;
+            }
         }
         int beg = pos;
-        pos += m.start();
+        pos = end;
         String ss = buf.substring(beg, pos);
         parseComment();
         if (ss.isEmpty()) {
@@ -657,7 +679,7 @@ public class DSP {
                         "Package name of %description does not match that of the preceding %package");
             }
             List<String> desc = parseSection();
-            return Pkg.of(name).withTags(tags).withDeps(deps).withDescription(desc);
+            return new PkgBuilder(name).tags(tags).deps(deps).description(desc).build();
         }
         if (has("%package ")) {
             popCommentIgnore();
@@ -674,10 +696,11 @@ public class DSP {
                         "Package name of %description does not match that of the preceding %package");
             }
             List<String> desc = parseSection();
-            return Pkg.ofPrefixed(mainPkg.getName(), name)
-                    .withTags(tags)
-                    .withDeps(deps)
-                    .withDescription(desc);
+            return new PkgBuilder(mainPkg.getName() + "-" + name)
+                    .tags(tags)
+                    .deps(deps)
+                    .description(desc)
+                    .build();
         }
         return null;
     }
@@ -713,14 +736,14 @@ public class DSP {
 
     // An optional build script.
     private Script tryParseScript() throws SpecParseException {
-        for (ScriptType type : ScriptType.values()) {
-            if (has("%" + type.getName() + "\n")) {
-                popCommentIgnore();
-                List<String> script = parseSection();
-                return Script.of(type, script);
-            }
+        int k = SCRIPT_KEYWORDS.find(buf, pos);
+        if (k < 0) {
+            return null;
         }
-        return null;
+        pos += SCRIPT_KEYWORDS.length(k);
+        popCommentIgnore();
+        List<String> script = parseSection();
+        return Script.of(SCRIPT_KEYWORDS.get(k), script);
     }
 
     // Zero or one %files declarations for the main package.
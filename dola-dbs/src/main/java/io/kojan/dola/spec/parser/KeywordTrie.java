@@ -0,0 +1,100 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.spec.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Set of keywords with associated values, which finds the longest keyword occurring at given
+ * position of a string in a single left-to-right scan, without allocating.
+ *
+ * <p>Keywords are identified by their index, in the order they were added.
+ *
+ * @param <T> type of values
+ */
+class KeywordTrie<T> {
+    private static class Node {
+        char[] chars = new char[0];
+        Node[] children = new Node[0];
+        int index = -1;
+
+        Node child(char c) {
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Node root = new Node();
+    private final List<String> keywords = new ArrayList<>();
+    private final List<T> values = new ArrayList<>();
+
+    public KeywordTrie<T> add(String keyword, T value) {
+        Node node = root;
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = keyword.charAt(i);
+            Node child = node.child(c);
+            if (child == null) {
+                child = new Node();
+                int n = node.chars.length;
+                node.chars = Arrays.copyOf(node.chars, n + 1);
+                node.children = Arrays.copyOf(node.children, n + 1);
+                node.chars[n] = c;
+                node.children[n] = child;
+            }
+            node = child;
+        }
+        if (node.index >= 0) {
+            throw new IllegalArgumentException("Duplicate keyword: " + keyword);
+        }
+        node.index = keywords.size();
+        keywords.add(keyword);
+        values.add(value);
+        return this;
+    }
+
+    /**
+     * Returns index of the longest keyword that given string contains at given position, or -1 if
+     * there is no such keyword.
+     */
+    public int find(String s, int pos) {
+        int found = -1;
+        Node node = root;
+        for (int i = pos; i < s.length(); i++) {
+            node = node.child(s.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.index >= 0) {
+                found = node.index;
+            }
+        }
+        return found;
+    }
+
+    public T get(int index) {
+        return values.get(index);
+    }
+
+    public int length(int index) {
+        return keywords.get(index).length();
+    }
+}
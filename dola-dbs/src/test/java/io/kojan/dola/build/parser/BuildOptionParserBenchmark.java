@@ -0,0 +1,68 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.build.parser;
+
+/**
+ * Measures {@link BuildOptionParser} parsing time on build options with a packaging option
+ * listing many files, aliases and compat versions, which should scale linearly with their count.
+ *
+ * <p>Not ran as part of the test suite. Usage: {@code BuildOptionParserBenchmark [rounds
+ * [max-entries]]}
+ */
+public class BuildOptionParserBenchmark {
+    static String buildOptions(int entries) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("artifact \"org.example:example\" {\n");
+        sb.append("    files {\n");
+        for (int i = 0; i < entries; i++) {
+            sb.append("        \"example/file").append(i).append("\"\n");
+        }
+        sb.append("    }\n");
+        sb.append("    aliases {\n");
+        for (int i = 0; i < entries; i++) {
+            sb.append("        \"org.example:alias").append(i).append("\"\n");
+        }
+        sb.append("    }\n");
+        sb.append("    compatVersions {\n");
+        for (int i = 0; i < entries; i++) {
+            sb.append("        \"1.").append(i).append("\"\n");
+        }
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    static long parse(String buildOptions, int rounds) throws BuildOptionParseException {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            new BuildOptionParser("example", buildOptions).parse();
+        }
+        return (System.nanoTime() - start) / rounds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int maxEntries = args.length > 1 ? Integer.parseInt(args[1]) : 16000;
+        for (int warmup = 0; warmup < 2; warmup++) {
+            for (int entries = 1000; entries <= maxEntries; entries *= 2) {
+                long time = parse(buildOptions(entries), rounds);
+                System.err.printf(
+                        "%d files, aliases and compat versions each: %.3f ms%n",
+                        entries, time / 1e6);
+            }
+        }
+    }
+}
@@ -119,6 +119,123 @@ class BuildOptionParserTest {
         assertThat(db.getXmvnToolchain()).isEqualTo("openjdk25");
     }
 
+    @Test
+    void parallelBuild() throws Exception {
+        String code =
+                """
+                    parallelBuild
+                """;
+        DeclarativeBuild db = parsed(code);
+        assertThat(db.isParallelBuild()).isTrue();
+        assertThat(db.getParallelBuildCap()).isEqualTo(0);
+    }
+
+    @Test
+    void parallelBuildCap() throws Exception {
+        String code =
+                """
+                    parallelBuild "8"
+                    skipTests
+                """;
+        DeclarativeBuild db = parsed(code);
+        assertThat(db.isParallelBuild()).isTrue();
+        assertThat(db.getParallelBuildCap()).isEqualTo(8);
+        assertThat(db.isSkipTests()).isTrue();
+    }
+
+    @Test
+    void parallelBuildInvalidCapShouldFail() throws Exception {
+        String code =
+                """
+                    skipTests
+                    parallelBuild "zero"
+                """;
+        String expectedErrorMessage =
+                """
+                    Semantic error: parallel build cap must be a positive integer
+                    at BuildOption: [...] parallelBuild "zero"
+                    ~~~~~~~~~~~~~~~~~~~~
+                    skipTests
+                    parallelBuild "zero"
+                    ~~~~~~~~~~~~~~~~~~~~
+                      here -------^
+                """;
+        assertThatExceptionOfType(BuildOptionParseException.class)
+                .isThrownBy(() -> parse(code))
+                .withMessage(unindent(expectedErrorMessage));
+    }
+
+    @Test
+    void parallelBuildCapLimit() throws Exception {
+        assertThat(parsed("parallelBuild \"9999\"").getParallelBuildCap()).isEqualTo(9999);
+        assertThatExceptionOfType(BuildOptionParseException.class)
+                .isThrownBy(() -> parse("parallelBuild \"10000\""))
+                .withMessageStartingWith(
+                        "Semantic error: parallel build cap must be a positive integer");
+    }
+
+    @Test
+    void testOptions() throws Exception {
+        String code =
+                """
+                    tests {
+                        forkCount "2C"
+                        parallel "classes"
+                        reuseForks
+                    }
+                """;
+        DeclarativeBuild db = parsed(code);
+        assertThat(db.getTestForkCount()).isEqualTo("2C");
+        assertThat(db.getTestParallel()).isEqualTo("classes");
+        assertThat(db.isTestReuseForks()).isTrue();
+    }
+
+    @Test
+    void testOptionsInvalidForkCountShouldFail() throws Exception {
+        String code =
+                """
+                    tests {
+                        forkCount "0"
+                    }
+                """;
+        String expectedErrorMessage =
+                """
+                    Semantic error: fork count must be a positive integer, optionally followed by C
+                    at BuildOption: tests -> forkCount "0"
+                    ~~~~~~~~~~~~~~~~~
+                    tests {
+                        forkCount "0"
+                    ~~~~~~~~~~~~~~~~~
+                      here -------^
+                """;
+        assertThatExceptionOfType(BuildOptionParseException.class)
+                .isThrownBy(() -> parse(code))
+                .withMessage(unindent(expectedErrorMessage));
+    }
+
+    @Test
+    void testOptionsUnknownParallelModeShouldFail() throws Exception {
+        String code =
+                """
+                    tests {
+                        parallel "everything"
+                    }
+                """;
+        String expectedErrorMessage =
+                """
+                    Semantic error: unknown parallel test execution mode
+                    at BuildOption: tests -> parallel "everything"
+                    ~~~~~~~~~~~~~~~~~~~~~~~~~
+                    tests {
+                        parallel "everything"
+                    ~~~~~~~~~~~~~~~~~~~~~~~~~
+                      here ------^
+                """;
+        assertThatExceptionOfType(BuildOptionParseException.class)
+                .isThrownBy(() -> parse(code))
+                .withMessage(unindent(expectedErrorMessage));
+    }
+
     @Test
     void mavenOption() throws Exception {
         String code =
@@ -1447,4 +1564,18 @@ class BuildOptionParserTest {
                 .isThrownBy(() -> parse(code))
                 .withMessage(unindent(expectedErrorMessage));
     }
+
+    @Test
+    void format() throws Exception {
+        BuildOptionParser parser =
+                new BuildOptionParser("mypkg", "skipTests  artifact \"a:b\" {  file \"f\" }");
+        parser.parse();
+        assertThat(parser.format())
+                .isEqualTo(
+                        """
+                        skipTests
+                        artifact "a:b" {
+                            file "f"
+                        }""");
+    }
 }
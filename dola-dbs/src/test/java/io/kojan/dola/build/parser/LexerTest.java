@@ -111,4 +111,13 @@ class LexerTest {
                 .isThrownBy(lexer::expectLiteral)
                 .withMessageContaining("expected literal");
     }
+
+    @Test
+    void untrackedErrorWithoutContext() throws Exception {
+        Lexer lexer = new Lexer("print $", false);
+        assertThat(lexer.next().isKeyword("print")).isTrue();
+        assertThatExceptionOfType(BuildOptionParseException.class)
+                .isThrownBy(lexer::next)
+                .withMessage("Lexical error: illegal character");
+    }
 }
@@ -0,0 +1,98 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.bulk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.kojan.dola.bulk.BulkResult.Status;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BulkProcessorTest {
+    private static final Path CORPUS = Path.of("src/test/resources/dsp");
+
+    @TempDir Path workDir;
+
+    private List<Status> statuses(BulkProcessor processor, Path root) throws Exception {
+        return processor.process(root).stream().map(BulkResult::getStatus).toList();
+    }
+
+    @Test
+    void cacheAndWrite() throws Exception {
+        Path root = workDir.resolve("specs");
+        Files.createDirectories(root.resolve("sub"));
+        Files.copy(CORPUS.resolve("aopalliance.spec"), root.resolve("aopalliance.spec"));
+        String hamcrest = Files.readString(CORPUS.resolve("hamcrest.spec"));
+        String reformatted = hamcrest.replaceFirst("Name: +", "Name: ");
+        Files.writeString(root.resolve("sub/hamcrest.spec"), reformatted);
+        Files.writeString(root.resolve("bad.spec"), "garbage\n");
+
+        BulkProcessor processor = new BulkProcessor();
+        processor.optCacheFile = workDir.resolve("cache");
+        assertThat(statuses(processor, root))
+                .containsExactly(Status.UNCHANGED, Status.INVALID, Status.CHANGED);
+        assertThat(root.resolve("sub/hamcrest.spec")).hasContent(reformatted);
+
+        processor.optWrite = true;
+        assertThat(statuses(processor, root))
+                .containsExactly(Status.SKIPPED, Status.INVALID, Status.CHANGED);
+        assertThat(root.resolve("sub/hamcrest.spec")).hasContent(hamcrest);
+        assertThat(statuses(processor, root))
+                .containsExactly(Status.SKIPPED, Status.INVALID, Status.SKIPPED);
+
+        processor.optSortTags = true;
+        assertThat(statuses(processor, root)).doesNotContain(Status.SKIPPED);
+    }
+
+    @Test
+    void convert() throws Exception {
+        Path root = workDir.resolve("specs");
+        Files.createDirectories(root);
+        Files.writeString(
+                root.resolve("foo.spec"),
+                """
+                Name:           foo
+                Version:        1.0
+                Release:        1
+                Summary:        Foo
+                License:        Apache-2.0
+                URL:            https://example.com
+                BuildArch:      noarch
+
+                BuildSystem:    maven
+                BuildOption:    transform ":foo" {
+                BuildOption:    removeParent
+                BuildOption:    }
+
+                %description
+                Foo.
+
+                %files -f .mfiles
+
+                %changelog
+                """);
+
+        BulkProcessor processor = new BulkProcessor();
+        processor.optConvertDir = workDir.resolve("out");
+        assertThat(statuses(processor, root)).containsExactly(Status.UNCHANGED);
+        String scripts = Files.readString(workDir.resolve("out/foo.inc"));
+        assertThat(scripts).startsWith("%generate_buildrequires\n");
+        assertThat(scripts).contains("\n%build\n", "\n%install\n", "-n foo");
+    }
+}
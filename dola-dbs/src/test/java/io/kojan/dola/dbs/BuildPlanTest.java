@@ -0,0 +1,63 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.dbs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.kojan.dola.build.parser.BuildOptionParser;
+import io.kojan.dola.imperator.Imperator;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BuildPlanTest {
+    @TempDir Path tempDir;
+
+    @Test
+    void storeAndLoad() throws Exception {
+        String buildOptions = "skipTests\n";
+        Imperator imperator =
+                new Imperator(new BuildOptionParser("foo", buildOptions).parse(), false);
+        BuildPlan plan = BuildPlan.render(imperator);
+        assertThat(plan.build).contains("-Dmaven.test.skip=true");
+        assertThat(plan.install).contains("-n foo");
+
+        Path cacheFile = tempDir.resolve(".dola-plan");
+        String key = BuildPlan.key("foo", buildOptions, false);
+        plan.store(cacheFile, key);
+        BuildPlan loaded = BuildPlan.load(cacheFile, key);
+        assertThat(loaded).isNotNull();
+        assertThat(loaded.buildrequires).isEqualTo(plan.buildrequires);
+        assertThat(loaded.build).isEqualTo(plan.build);
+        assertThat(loaded.install).isEqualTo(plan.install);
+        try (Stream<Path> paths = Files.list(tempDir)) {
+            assertThat(paths).containsExactly(cacheFile);
+        }
+    }
+
+    @Test
+    void keyMismatch() throws Exception {
+        Imperator imperator = new Imperator(new BuildOptionParser("foo", "").parse(), false);
+        Path cacheFile = tempDir.resolve(".dola-plan");
+        BuildPlan.render(imperator).store(cacheFile, BuildPlan.key("foo", "", false));
+        assertThat(BuildPlan.load(cacheFile, BuildPlan.key("foo", "", true))).isNull();
+        assertThat(BuildPlan.load(cacheFile, BuildPlan.key("bar", "", false))).isNull();
+        assertThat(BuildPlan.load(cacheFile, BuildPlan.key("foo", "skipTests\n", false))).isNull();
+        assertThat(BuildPlan.load(tempDir.resolve("missing"), "")).isNull();
+    }
+}
@@ -0,0 +1,124 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.imperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.kojan.dola.build.parser.BuildOptionParser;
+import org.junit.jupiter.api.Test;
+
+class ImperatorTest {
+
+    Imperator imperator(String buildOptions) throws Exception {
+        return new Imperator(new BuildOptionParser("foo", buildOptions).parse(), false);
+    }
+
+    String build(String buildOptions) throws Exception {
+        return String.join("\n", imperator(buildOptions).build());
+    }
+
+    String buildrequires(String buildOptions) throws Exception {
+        return String.join("\n", imperator(buildOptions).buildrequires());
+    }
+
+    @Test
+    void parallelBuild() throws Exception {
+        assertThat(imperator("parallelBuild").build())
+                .containsExactly(
+                        "# Run the actual Maven build, executing all build plugins and so on.",
+                        """
+                        xmvn5 \\
+                            --show-version \\
+                            --batch-mode \\
+                            --offline \\
+                            -T %{_smp_build_ncpus} \\
+                            -Dsurefire.reportFormat=plain \\
+                            verify \\
+                            org.fedoraproject.xmvn:xmvn-mojo:5.1.0:install""");
+        assertThat(buildrequires("parallelBuild"))
+                .contains("    --offline \\\n    -T %{_smp_build_ncpus} \\\n");
+    }
+
+    @Test
+    void parallelBuildCap() throws Exception {
+        String threads = "-T %[%{_smp_build_ncpus} < 8 ? %{_smp_build_ncpus} : 8]";
+        assertThat(build("parallelBuild \"8\"")).contains("    " + threads + " \\\n");
+        assertThat(buildrequires("parallelBuild \"8\"")).contains("    " + threads + " \\\n");
+    }
+
+    @Test
+    void sequentialBuild() throws Exception {
+        assertThat(build("")).doesNotContain("-T ");
+        assertThat(buildrequires("")).doesNotContain("-T ");
+    }
+
+    @Test
+    void forkCount() throws Exception {
+        assertThat(build("tests { forkCount \"4\" }")).contains("    -DforkCount=4 \\\n");
+        assertThat(build("tests { forkCount \"1C\" }"))
+                .contains("    -DforkCount=%{_smp_build_ncpus} \\\n");
+        assertThat(build("tests { forkCount \"2C\" }"))
+                .contains("    -DforkCount=%[2 * %{_smp_build_ncpus}] \\\n");
+        assertThat(buildrequires("tests { forkCount \"2C\" }"))
+                .contains("    -DforkCount=%[2 * %{_smp_build_ncpus}] \\\n");
+    }
+
+    @Test
+    void parallelTests() throws Exception {
+        assertThat(build("tests { parallel \"classes\" reuseForks }"))
+                .contains(
+                        """
+                            -DreuseForks=true \\
+                            -Dparallel=classes \\
+                            -DperCoreThreadCount=false \\
+                            -DthreadCount=%{_smp_build_ncpus} \\
+                        """);
+    }
+
+    @Test
+    void testSummary() throws Exception {
+        assertThat(imperator("tests { reuseForks }").build())
+                .containsExactly(
+                        "# Run the actual Maven build, executing all build plugins and so on.",
+                        "dola_status=0",
+                        """
+                        xmvn5 \\
+                            --show-version \\
+                            --batch-mode \\
+                            --offline \\
+                            -Dsurefire.reportFormat=plain \\
+                            -DreuseForks=true \\
+                            verify \\
+                            org.fedoraproject.xmvn:xmvn-mojo:5.1.0:install \\
+                            || dola_status=$?""",
+                        "# Print time spent in test classes, slowest first, so that it can be seen",
+                        "# which tests dominate build time.  Build status is kept afterwards.",
+                        "echo 'Slowest test classes (seconds):'",
+                        """
+                        find . -path '*/surefire-reports/TEST-*.xml' -exec awk -F'"' \\
+                            '/<testsuite /{for(i=1;i<NF;i++){if($i~/ name=$/)n=$(i+1);\
+                        if($i~/ time=$/)t=$(i+1)};gsub(",","",t);print t,n;exit}' \\
+                            {} \\; | sort -rn | head -n 20 || :""",
+                        "(exit $dola_status)");
+    }
+
+    @Test
+    void skipTestsHasNoSummary() throws Exception {
+        String build = build("skipTests tests { forkCount \"2C\" }");
+        assertThat(build).contains("    -Dmaven.test.skip=true \\\n    package \\\n");
+        assertThat(build).doesNotContain("dola_status").doesNotContain("surefire-reports");
+    }
+}
@@ -0,0 +1,93 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.spec.generator;
+
+import io.kojan.dola.spec.Spec;
+import io.kojan.dola.spec.parser.DSP;
+import io.kojan.dola.spec.parser.SpecParseException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures {@link DSG} generation throughput on the spec corpus in {@code src/test/resources/dsp},
+ * with all sorting options enabled, both accumulating output in memory and streaming it to a
+ * {@link Writer}. Throughput is reported in specs per second.
+ *
+ * <p>Not ran as part of the test suite. Usage: {@code DSGBenchmark [rounds]}
+ */
+public class DSGBenchmark {
+    static DSG generator() {
+        DSG dsg = new DSG();
+        dsg.optSortTags = true;
+        dsg.optSortDeps = true;
+        dsg.optSortScripts = true;
+        return dsg;
+    }
+
+    static long accumulate(List<Spec> corpus, int rounds) {
+        long start = System.nanoTime();
+        long length = 0;
+        for (int i = 0; i < rounds; i++) {
+            for (Spec spec : corpus) {
+                DSG dsg = generator();
+                dsg.generate(spec);
+                length += dsg.toString().length();
+            }
+        }
+        if (length == 0) {
+            throw new IllegalStateException();
+        }
+        return (System.nanoTime() - start) / rounds;
+    }
+
+    static long stream(List<Spec> corpus, int rounds) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (Spec spec : corpus) {
+                generator().generate(spec, Writer.nullWriter());
+            }
+        }
+        return (System.nanoTime() - start) / rounds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        List<Spec> corpus = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(Path.of("src/test/resources/dsp"))) {
+            for (Path path : paths.sorted().toList()) {
+                try {
+                    corpus.add(new DSP(Files.readString(path)).parseSpec());
+                } catch (SpecParseException e) {
+                    // Continue despite exception, some specs are not declarative
+                }
+            }
+        }
+        for (int warmup = 0; warmup < 2; warmup++) {
+            long accumulated = accumulate(corpus, rounds);
+            long streamed = stream(corpus, rounds);
+            System.err.printf(
+                    "corpus of %d specs: in memory %.0f specs/s, streamed %.0f specs/s%n",
+                    corpus.size(),
+                    corpus.size() / (accumulated / 1e9),
+                    corpus.size() / (streamed / 1e9));
+        }
+    }
+}
@@ -19,8 +19,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import io.kojan.dola.spec.Spec;
 import io.kojan.dola.spec.parser.DSP;
+import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -201,4 +203,16 @@ class DSGTest {
         // Files.writeString(Path.of("/tmp/ppp").resolve(pkg + ".spec"), dsg.toString());
         assertThat(dsg.toString()).isEqualTo(s);
     }
+
+    @Test
+    void streamed() throws Exception {
+        String s = Files.readString(Path.of("src/test/resources/dsp/maven-resolver.spec"));
+        Spec spec = new DSP(s).parseSpec();
+        DSG dsg = new DSG();
+        dsg.optSortScripts = true;
+        StringWriter writer = new StringWriter();
+        dsg.generate(spec, writer);
+        assertThat(writer.toString()).isEqualTo(s);
+        assertThat(dsg.toString()).isEmpty();
+    }
 }
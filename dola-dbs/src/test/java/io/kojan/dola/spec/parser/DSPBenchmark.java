@@ -0,0 +1,86 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.spec.parser;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures {@link DSP} parsing time on the spec corpus in {@code src/test/resources/dsp} and on
+ * synthetic specs with a long {@code %changelog}, which should scale linearly with spec size.
+ * Corpus throughput is reported in specs per second.
+ *
+ * <p>Not ran as part of the test suite. Usage: {@code DSPBenchmark [rounds [max-megabytes]]}
+ */
+public class DSPBenchmark {
+    static String syntheticSpec(String base, int size) {
+        StringBuilder sb = new StringBuilder(size + base.length() + 1000);
+        sb.append(base);
+        for (int i = 0; sb.length() < size; i++) {
+            sb.append("\n* Mon Jan 01 2024 Jane Doe <jdoe@example.com> - 1.0-")
+                    .append(i)
+                    .append("\n- Rebuilt for mass rebuild number ")
+                    .append(i)
+                    .append("\n- Updated to upstream version 1.0.")
+                    .append(i)
+                    .append('\n');
+        }
+        return sb.toString();
+    }
+
+    static long parse(String spec, int rounds) throws SpecParseException {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            new DSP(spec).parseSpec();
+        }
+        return (System.nanoTime() - start) / rounds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int maxMegabytes = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        List<String> corpus = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(Path.of("src/test/resources/dsp"))) {
+            for (Path path : paths.sorted().toList()) {
+                String spec = Files.readString(path);
+                try {
+                    new DSP(spec).parseSpec();
+                    corpus.add(spec);
+                } catch (SpecParseException e) {
+                    // Continue despite exception, some specs are not declarative
+                }
+            }
+        }
+        String base = Files.readString(Path.of("src/test/resources/dsp/apache-commons-io.spec"));
+        for (int warmup = 0; warmup < 2; warmup++) {
+            long corpusTime = 0;
+            for (String spec : corpus) {
+                corpusTime += parse(spec, rounds);
+            }
+            System.err.printf(
+                    "corpus of %d specs: %.3f ms, %.0f specs/s%n",
+                    corpus.size(), corpusTime / 1e6, corpus.size() / (corpusTime / 1e9));
+            for (int mb = 1; mb <= maxMegabytes; mb *= 2) {
+                String spec = syntheticSpec(base, mb << 20);
+                long time = parse(spec, Math.max(1, rounds / mb));
+                System.err.printf("synthetic %d MB spec: %.3f ms%n", mb, time / 1e6);
+            }
+        }
+    }
+}
@@ -17,8 +17,10 @@ package io.kojan.dola.spec.parser;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import io.kojan.dola.spec.Spec;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -195,4 +197,14 @@ class DSPTest {
         dsp.parseSpec();
         assertThat(true).isTrue();
     }
+
+    @Test
+    void longChangelog() throws Exception {
+        Path p = Path.of("src/test/resources/dsp/apache-commons-io.spec");
+        String s = DSPBenchmark.syntheticSpec(Files.readString(p), 1 << 20);
+        Spec spec = new DSP(s).parseSpec();
+        String changelog = spec.getChangelog().getFirst();
+        assertThat(changelog).startsWith("%autochangelog\n\n* Mon Jan 01 2024 Jane Doe");
+        assertThat(s).endsWith(changelog + "\n");
+    }
 }
@@ -0,0 +1,53 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.spec.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import org.junit.jupiter.api.Test;
+
+class KeywordTrieTest {
+    @Test
+    void longestMatch() {
+        KeywordTrie<String> trie =
+                new KeywordTrie<String>()
+                        .add("Source", "numbered")
+                        .add("Source:", "plain")
+                        .add("Summary:", "summary");
+        assertThat(trie.find("Source: foo", 0)).isEqualTo(1);
+        assertThat(trie.find("Source0: foo", 0)).isEqualTo(0);
+        assertThat(trie.find("x\nSummary: foo", 2)).isEqualTo(2);
+        assertThat(trie.get(2)).isEqualTo("summary");
+        assertThat(trie.length(2)).isEqualTo(8);
+    }
+
+    @Test
+    void noMatch() {
+        KeywordTrie<String> trie = new KeywordTrie<String>().add("%build\n", "build");
+        assertThat(trie.find("%buil", 0)).isEqualTo(-1);
+        assertThat(trie.find("%build -p\n", 0)).isEqualTo(-1);
+        assertThat(trie.find("%build\n", 1)).isEqualTo(-1);
+        assertThat(trie.find("", 0)).isEqualTo(-1);
+    }
+
+    @Test
+    void duplicate() {
+        KeywordTrie<String> trie = new KeywordTrie<String>().add("URL:", "a");
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> trie.add("URL:", "b"));
+    }
+}
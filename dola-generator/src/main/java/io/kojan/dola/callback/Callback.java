@@ -16,9 +16,12 @@
 package io.kojan.dola.callback;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.StandardProtocolFamily;
 import java.net.URISyntaxException;
 import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.file.Files;
@@ -26,8 +29,13 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
 
 public class Callback {
+    // Exit status reported back to the caller
+    static final int STATUS_SUCCESS = 0;
+    static final int STATUS_FAILURE = 1;
+
     private final List<String> command;
 
     public Callback(List<String> command) {
@@ -38,34 +46,139 @@ public class Callback {
         return command;
     }
 
+    /** Returns the command as a string that can be embedded in a shell script. */
+    public String getShellCommand() {
+        return command.stream().map(Callback::quote).collect(Collectors.joining(" "));
+    }
+
+    static String quote(String arg) {
+        return "'" + arg.replace("'", "'\\''") + "'";
+    }
+
+    // Any failure of the delegate, including errors, must be reported as non-zero status
+    private static int runDelegate(Runnable delegate) {
+        try {
+            delegate.run();
+            return STATUS_SUCCESS;
+        } catch (Throwable e) {
+            e.printStackTrace();
+            return STATUS_FAILURE;
+        }
+    }
+
+    private static void startThread(ClassLoader cl, Runnable runnable) {
+        Thread thread =
+                new Thread(
+                        () -> {
+                            Thread.currentThread().setContextClassLoader(cl);
+                            runnable.run();
+                        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Sets up a callback that runs given delegate when the returned command is executed. The
+     * command exits with non-zero status if the delegate fails.
+     *
+     * <p>Named pipes are used when possible, so that the command is a plain shell script. If named
+     * pipes cannot be created then the command runs a small Java program that connects to a Unix
+     * domain socket instead.
+     */
     public static Callback setUp(Runnable delegate) throws IOException {
+        try {
+            return setUpFifo(delegate);
+        } catch (IOException e) {
+            return setUpSocket(delegate);
+        }
+    }
+
+    static Callback setUpFifo(Runnable delegate) throws IOException {
+        Path tempDir = Files.createTempDirectory("dola-");
+        Path requestPath = tempDir.resolve("request");
+        Path statusPath = tempDir.resolve("status");
+        try {
+            Process mkfifo =
+                    new ProcessBuilder("mkfifo", requestPath.toString(), statusPath.toString())
+                            .inheritIO()
+                            .start();
+            if (mkfifo.waitFor() != 0) {
+                throw new IOException("mkfifo failed with exit code " + mkfifo.exitValue());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (IOException e) {
+            Files.deleteIfExists(requestPath);
+            Files.deleteIfExists(statusPath);
+            Files.delete(tempDir);
+            throw e;
+        }
+        startThread(
+                Thread.currentThread().getContextClassLoader(),
+                () -> {
+                    int status = STATUS_FAILURE;
+                    try {
+                        // Opening FIFO blocks until the other end is opened by the shell
+                        try (InputStream is = Files.newInputStream(requestPath)) {
+                            is.read();
+                        }
+                        status = runDelegate(delegate);
+                    } catch (Throwable e) {
+                        e.printStackTrace();
+                    } finally {
+                        // The shell waits for status, so it must be written whatever happened
+                        try (OutputStream os = Files.newOutputStream(statusPath)) {
+                            os.write((status + "\n").getBytes());
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                        try {
+                            Files.deleteIfExists(requestPath);
+                            Files.deleteIfExists(statusPath);
+                            Files.deleteIfExists(tempDir);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                });
+        String script =
+                ": >"
+                        + quote(requestPath.toString())
+                        + " && read -r status <"
+                        + quote(statusPath.toString())
+                        + " && exit \"$status\"";
+        return new Callback(Arrays.asList("/bin/sh", "-c", script));
+    }
+
+    static Callback setUpSocket(Runnable delegate) throws IOException {
         Path javaHome = Path.of(System.getProperty("java.home"));
         Path javaCmd = javaHome.resolve("bin").resolve("java");
         Path tempDir = Files.createTempDirectory("dola-");
         Path socketPath = tempDir.resolve("socket");
         Semaphore semaphore = new Semaphore(0);
-        ClassLoader cl = Thread.currentThread().getContextClassLoader();
-        Thread thread =
-                new Thread(
-                        () -> {
-                            Thread.currentThread().setContextClassLoader(cl);
-                            UnixDomainSocketAddress socketAddress =
-                                    UnixDomainSocketAddress.of(socketPath);
-                            try (ServerSocketChannel serverChannel =
-                                    ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
-                                serverChannel.bind(socketAddress);
-                                semaphore.release();
-                                try (SocketChannel channel = serverChannel.accept()) {
-                                    delegate.run();
-                                }
-                            } catch (IOException e) {
-                                e.printStackTrace();
+        startThread(
+                Thread.currentThread().getContextClassLoader(),
+                () -> {
+                    UnixDomainSocketAddress socketAddress = UnixDomainSocketAddress.of(socketPath);
+                    try (ServerSocketChannel serverChannel =
+                            ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+                        serverChannel.bind(socketAddress);
+                        semaphore.release();
+                        try (SocketChannel channel = serverChannel.accept()) {
+                            int status = STATUS_FAILURE;
+                            try {
+                                status = runDelegate(delegate);
                             } finally {
-                                semaphore.release();
+                                channel.write(ByteBuffer.wrap(new byte[] {(byte) status}));
                             }
-                        });
-        thread.setDaemon(true);
-        thread.start();
+                        }
+                    } catch (Throwable e) {
+                        e.printStackTrace();
+                    } finally {
+                        semaphore.release();
+                    }
+                });
         semaphore.acquireUninterruptibly();
         Path cp;
         try {
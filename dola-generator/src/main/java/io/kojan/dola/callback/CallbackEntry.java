@@ -27,8 +27,11 @@ public class CallbackEntry {
         UnixDomainSocketAddress socketAddress = UnixDomainSocketAddress.of(socketPath);
         try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
             channel.connect(socketAddress);
-            ByteBuffer buffer = ByteBuffer.allocate(1024);
-            channel.read(buffer);
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            // Hook status is sent as a single byte, missing status means the hook did not finish
+            if (channel.read(buffer) != 1 || buffer.get(0) != Callback.STATUS_SUCCESS) {
+                System.exit(Callback.STATUS_FAILURE);
+            }
         }
     }
 }
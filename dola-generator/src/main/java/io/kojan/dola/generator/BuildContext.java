@@ -15,6 +15,21 @@
  */
 package io.kojan.dola.generator;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface BuildContext {
     String eval(String macro);
+
+    /**
+     * Expands given macros, returning their values in the same order. Implementations may expand
+     * all of them at once, which is cheaper than calling {@link #eval} for each macro.
+     */
+    default List<String> evalAll(List<String> macros) {
+        List<String> values = new ArrayList<>(macros.size());
+        for (String macro : macros) {
+            values.add(eval(macro));
+        }
+        return values;
+    }
 }
@@ -0,0 +1,247 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Snapshot of buildroot contents, taken in a single directory walk.
+ *
+ * <p>Entries are keyed by their path relative to buildroot, so that generators can look up subtrees
+ * by prefix or glob without walking the disk again.
+ */
+public class BuildrootIndex {
+    public enum Type {
+        FILE,
+        DIRECTORY,
+        SYMLINK,
+        OTHER,
+    }
+
+    public static class Entry {
+        private final String key;
+        private final Path path;
+        private final Type type;
+        private final long size;
+        private final FileTime lastModifiedTime;
+
+        Entry(String key, Path path, BasicFileAttributes attr) {
+            this.key = key;
+            this.path = path;
+            this.type =
+                    attr.isRegularFile()
+                            ? Type.FILE
+                            : attr.isDirectory()
+                                    ? Type.DIRECTORY
+                                    : attr.isSymbolicLink() ? Type.SYMLINK : Type.OTHER;
+            this.size = attr.size();
+            this.lastModifiedTime = attr.lastModifiedTime();
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        /** Returns path of the entry relative to buildroot. */
+        public String getRelativePath() {
+            return key;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public FileTime getLastModifiedTime() {
+            return lastModifiedTime;
+        }
+
+        public boolean isRegularFile() {
+            return type == Type.FILE;
+        }
+
+        public boolean isDirectory() {
+            return type == Type.DIRECTORY;
+        }
+    }
+
+    private final Path buildRoot;
+    private final NavigableMap<String, Entry> entries;
+    // Entries returned by enumerating methods, which are all entries unless index is restricted
+    private final NavigableMap<String, Entry> listed;
+
+    private BuildrootIndex(
+            Path buildRoot,
+            NavigableMap<String, Entry> entries,
+            NavigableMap<String, Entry> listed) {
+        this.buildRoot = buildRoot;
+        this.entries = entries;
+        this.listed = listed;
+    }
+
+    public static BuildrootIndex scan(Path buildRoot) {
+        NavigableMap<String, Entry> entries = new TreeMap<>();
+        if (Files.isDirectory(buildRoot)) {
+            try {
+                Files.walkFileTree(
+                        buildRoot,
+                        new SimpleFileVisitor<>() {
+                            private void add(Path path, BasicFileAttributes attr) {
+                                if (!path.equals(buildRoot)) {
+                                    String key = buildRoot.relativize(path).toString();
+                                    entries.put(key, new Entry(key, path, attr));
+                                }
+                            }
+
+                            @Override
+                            public FileVisitResult preVisitDirectory(
+                                    Path dir, BasicFileAttributes attr) {
+                                add(dir, attr);
+                                return FileVisitResult.CONTINUE;
+                            }
+
+                            @Override
+                            public FileVisitResult visitFile(Path file, BasicFileAttributes attr) {
+                                add(file, attr);
+                                return FileVisitResult.CONTINUE;
+                            }
+                        });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        NavigableMap<String, Entry> unmodifiable = Collections.unmodifiableNavigableMap(entries);
+        return new BuildrootIndex(buildRoot, unmodifiable, unmodifiable);
+    }
+
+    /**
+     * Returns index in which only given entries are listed by {@link #getEntries}, {@link #find}
+     * and {@link #glob}, while all entries can still be looked up by path.
+     *
+     * @param paths paths of listed entries, relative to buildroot
+     */
+    public BuildrootIndex restrict(Collection<String> paths) {
+        NavigableMap<String, Entry> restricted = new TreeMap<>();
+        for (String path : paths) {
+            Entry entry = entries.get(path);
+            if (entry != null) {
+                restricted.put(path, entry);
+            }
+        }
+        return new BuildrootIndex(
+                buildRoot, entries, Collections.unmodifiableNavigableMap(restricted));
+    }
+
+    /**
+     * Returns buildroot index shared by all generators if the context provides one, or takes a
+     * fresh snapshot of {@code %{buildroot}} otherwise.
+     */
+    public static BuildrootIndex of(BuildContext context) {
+        if (context instanceof IndexedBuildContext indexedContext) {
+            return indexedContext.getBuildrootIndex();
+        }
+        return scan(Path.of(context.eval("%{buildroot}")));
+    }
+
+    private static String normalize(String prefix) {
+        while (prefix.startsWith("/")) {
+            prefix = prefix.substring(1);
+        }
+        while (prefix.endsWith("/")) {
+            prefix = prefix.substring(0, prefix.length() - 1);
+        }
+        return prefix;
+    }
+
+    public Path getBuildRoot() {
+        return buildRoot;
+    }
+
+    public int size() {
+        return listed.size();
+    }
+
+    public Collection<Entry> getEntries() {
+        return listed.values();
+    }
+
+    public Entry get(String path) {
+        return entries.get(normalize(path));
+    }
+
+    public boolean isDirectory(String path) {
+        Entry entry = get(path);
+        return entry != null && entry.isDirectory();
+    }
+
+    /**
+     * Returns entries located under given directory (relative to buildroot), not including the
+     * directory itself, up to given depth.
+     */
+    public List<Entry> find(String prefix, int maxDepth) {
+        String dir = normalize(prefix);
+        Collection<Entry> subtree =
+                dir.isEmpty() ? listed.values() : listed.subMap(dir + "/", dir + "0").values();
+        int base = dir.isEmpty() ? 0 : dir.length() + 1;
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : subtree) {
+            if (maxDepth == Integer.MAX_VALUE || depth(entry.key, base) <= maxDepth) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /** Returns entries whose path relative to buildroot matches given glob pattern. */
+    public List<Entry> glob(String pattern) {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + normalize(pattern));
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : listed.values()) {
+            if (matcher.matches(buildRoot.relativize(entry.getPath()))) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private static int depth(String key, int base) {
+        int depth = 1;
+        for (int i = base; i < key.length(); i++) {
+            if (key.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,49 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Generator whose results can be kept in persistent cache and reused by later builds.
+ *
+ * <p>Cached results are reused only when expansions of macros evaluated by the generator, states of
+ * buildroot entries and files given by {@link #getExternalInputs()} did not change.
+ */
+public interface CacheableGenerator extends Generator {
+    /**
+     * Tells whether dependencies generated for every buildroot entry depend only on path, type and
+     * contents of that entry. Cached dependencies of such generator are reused for unchanged
+     * entries, and the generator is ran only on the remaining ones, which it must enumerate with
+     * {@link BuildrootIndex#of}.
+     *
+     * @return {@code true} if dependencies can be reused per buildroot entry
+     */
+    default boolean isPerFile() {
+        return false;
+    }
+
+    /**
+     * Returns files and directories outside of buildroot which affect generated dependencies. Their
+     * paths, sizes and modification times are part of cache key.
+     *
+     * @return list of external inputs
+     */
+    default List<Path> getExternalInputs() {
+        return List.of();
+    }
+}
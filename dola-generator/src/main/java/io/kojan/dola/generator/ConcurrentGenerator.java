@@ -0,0 +1,29 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator;
+
+import java.util.Set;
+
+/**
+ * Generator that can run concurrently with other generators, outside of the rpm thread.
+ *
+ * <p>Such generator may evaluate only macros it declares up front, which are expanded on the rpm
+ * thread before the generator is ran. In addition, {@code %{error:...}} and {@code %{warn:...}}
+ * can be evaluated; they are deferred until the generator finishes.
+ */
+public interface ConcurrentGenerator extends Generator {
+    Set<String> getRequiredMacros();
+}
@@ -16,52 +16,54 @@
 package io.kojan.dola.generator.filesystem;
 
 import io.kojan.dola.generator.BuildContext;
+import io.kojan.dola.generator.BuildrootIndex;
+import io.kojan.dola.generator.CacheableGenerator;
 import io.kojan.dola.generator.Collector;
-import io.kojan.dola.generator.Generator;
-import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import io.kojan.dola.generator.ConcurrentGenerator;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Set;
 
-class FilesystemGenerator implements Generator {
+class FilesystemGenerator implements ConcurrentGenerator, CacheableGenerator {
     private final BuildContext context;
 
     public FilesystemGenerator(BuildContext context) {
         this.context = context;
     }
 
+    @Override
+    public Set<String> getRequiredMacros() {
+        return Set.of("%{buildroot}");
+    }
+
+    @Override
+    public boolean isPerFile() {
+        return true;
+    }
+
     @Override
     public void generate(Collector collector) {
-        Path buildRoot = Path.of(context.eval("%{buildroot}"));
-        List<Path> prefixes = new ArrayList<>();
-        prefixes.add(buildRoot.resolve("etc/java"));
-        prefixes.add(buildRoot.resolve("etc/jvm"));
-        prefixes.add(buildRoot.resolve("usr/lib/eclipse"));
-        prefixes.add(buildRoot.resolve("usr/lib/java"));
-        prefixes.add(buildRoot.resolve("usr/lib/jvm"));
-        prefixes.add(buildRoot.resolve("usr/lib/jvm-common"));
-        prefixes.add(buildRoot.resolve("usr/lib/jvm-private"));
-        prefixes.add(buildRoot.resolve("usr/share/eclipse"));
-        prefixes.add(buildRoot.resolve("usr/share/ivy-xmls"));
-        prefixes.add(buildRoot.resolve("usr/share/java"));
-        prefixes.add(buildRoot.resolve("usr/share/javadoc"));
-        prefixes.add(buildRoot.resolve("usr/share/jvm"));
-        prefixes.add(buildRoot.resolve("usr/share/jvm-common"));
-        prefixes.add(buildRoot.resolve("usr/share/maven-metadata"));
-        prefixes.add(buildRoot.resolve("usr/share/maven-poms"));
-        for (Path prefix : prefixes) {
-            if (Files.isDirectory(prefix)) {
-                try (Stream<Path> filePaths =
-                        Files.find(
-                                prefix, Integer.MAX_VALUE, (path, attr) -> !path.equals(prefix))) {
-                    for (Path filePath : filePaths.toList()) {
-                        collector.addRequires(filePath, "javapackages-filesystem");
-                    }
-                } catch (IOException e) {
-                    throw new UncheckedIOException(e);
+        BuildrootIndex index = BuildrootIndex.of(context);
+        List<String> prefixes = new ArrayList<>();
+        prefixes.add("etc/java");
+        prefixes.add("etc/jvm");
+        prefixes.add("usr/lib/eclipse");
+        prefixes.add("usr/lib/java");
+        prefixes.add("usr/lib/jvm");
+        prefixes.add("usr/lib/jvm-common");
+        prefixes.add("usr/lib/jvm-private");
+        prefixes.add("usr/share/eclipse");
+        prefixes.add("usr/share/ivy-xmls");
+        prefixes.add("usr/share/java");
+        prefixes.add("usr/share/javadoc");
+        prefixes.add("usr/share/jvm");
+        prefixes.add("usr/share/jvm-common");
+        prefixes.add("usr/share/maven-metadata");
+        prefixes.add("usr/share/maven-poms");
+        for (String prefix : prefixes) {
+            if (index.isDirectory(prefix)) {
+                for (BuildrootIndex.Entry entry : index.find(prefix, Integer.MAX_VALUE)) {
+                    collector.addRequires(entry.getPath(), "javapackages-filesystem");
                 }
             }
         }
@@ -16,75 +16,145 @@
 package io.kojan.dola.generator.jpms;
 
 import io.kojan.dola.generator.BuildContext;
+import io.kojan.dola.generator.BuildrootIndex;
+import io.kojan.dola.generator.CacheableGenerator;
 import io.kojan.dola.generator.Collector;
-import io.kojan.dola.generator.Generator;
+import io.kojan.dola.generator.ConcurrentGenerator;
 import io.kojan.dola.generator.logging.Logger;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UncheckedIOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
-import java.util.stream.Stream;
 
-class JPMSGenerator implements Generator {
+class JPMSGenerator implements ConcurrentGenerator, CacheableGenerator {
     private final BuildContext context;
 
     public JPMSGenerator(BuildContext context) {
         this.context = context;
     }
 
+    // Collects dependencies found in a single JAR so that they can be passed to the real
+    // collector later, in the same order as they were found
+    static class DeferredCollector implements Collector {
+        private final List<Consumer<Collector>> deps = new ArrayList<>();
+
+        @Override
+        public void addProvides(Path filePath, String name) {
+            deps.add(collector -> collector.addProvides(filePath, name));
+        }
+
+        @Override
+        public void addRequires(Path filePath, String name) {
+            deps.add(collector -> collector.addRequires(filePath, name));
+        }
+
+        void replay(Collector collector) {
+            deps.forEach(dep -> dep.accept(collector));
+        }
+    }
+
+    private int getThreads() {
+        String threads = context.eval("%{?__dolagen_jpms_threads}").strip();
+        try {
+            return threads.isEmpty() ? 1 : Math.max(1, Integer.parseInt(threads));
+        } catch (NumberFormatException e) {
+            Logger.debug("Ignoring invalid number of JPMS generator threads: " + threads);
+            return 1;
+        }
+    }
+
+    private void glean(Path filePath, Collector collector) {
+        ManifestGleaner manifestGleaner = new ManifestGleaner(filePath, collector);
+        ModuleInfoGleaner moduleInfoGleaner = new ModuleInfoGleaner(filePath, collector);
+        try (JarFile jarFile =
+                new JarFile(
+                        filePath.toFile(), false, JarFile.OPEN_READ, JarFile.runtimeVersion())) {
+            manifestGleaner.glean(jarFile.getManifest());
+            // Versioned lookup is a hash lookup in already loaded central directory, which
+            // resolves to the highest META-INF/versions/N/module-info.class applicable to
+            // current runtime, without iterating over all JAR entries
+            JarEntry jarEntry = jarFile.getJarEntry("module-info.class");
+            if (jarEntry != null) {
+                try (InputStream is = jarFile.getInputStream(jarEntry)) {
+                    moduleInfoGleaner.glean(is);
+                }
+            }
+        } catch (IOException e) {
+            // Continue despite exception
+            Logger.debug(e);
+        }
+    }
+
+    private void gleanInParallel(List<Path> jarPaths, Collector collector, int threads) {
+        List<Future<DeferredCollector>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (Path jarPath : jarPaths) {
+                results.add(
+                        executor.submit(
+                                () -> {
+                                    DeferredCollector deferred = new DeferredCollector();
+                                    glean(jarPath, deferred);
+                                    return deferred;
+                                }));
+            }
+            // Merge results in the same order as JARs were listed to keep output deterministic
+            for (Future<DeferredCollector> result : results) {
+                result.get().replay(collector);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public Set<String> getRequiredMacros() {
+        return Set.of("%{buildroot}", "%{?__dolagen_jpms_threads}");
+    }
+
+    @Override
+    public boolean isPerFile() {
+        return true;
+    }
+
     @Override
     public void generate(Collector collector) {
-        Path buildRoot = Path.of(context.eval("%{buildroot}"));
-        List<Path> prefixes = new ArrayList<>();
-        prefixes.add(buildRoot.resolve("usr/lib/java"));
-        prefixes.add(buildRoot.resolve("usr/share/java"));
-        for (Path prefix : prefixes) {
-            if (Files.isDirectory(prefix)) {
-                try (Stream<Path> filePaths =
-                        Files.find(
-                                prefix,
-                                Integer.MAX_VALUE,
-                                (path, attr) ->
-                                        attr.isRegularFile()
-                                                && path.getFileName()
-                                                        .toString()
-                                                        .endsWith(".jar"))) {
-                    for (Path filePath : filePaths.toList()) {
-                        ManifestGleaner manifestGleaner = new ManifestGleaner(filePath, collector);
-                        ModuleInfoGleaner moduleInfoGleaner =
-                                new ModuleInfoGleaner(filePath, collector);
-                        try (JarFile jarFile =
-                                new JarFile(
-                                        filePath.toFile(),
-                                        false,
-                                        JarFile.OPEN_READ,
-                                        JarFile.runtimeVersion())) {
-                            manifestGleaner.glean(jarFile.getManifest());
-                            Iterator<JarEntry> it = jarFile.versionedStream().iterator();
-                            while (it.hasNext()) {
-                                JarEntry jarEntry = it.next();
-                                if ("module-info.class".equals(jarEntry.getName())) {
-                                    try (InputStream is = jarFile.getInputStream(jarEntry)) {
-                                        moduleInfoGleaner.glean(is);
-                                    }
-                                }
-                            }
-                        } catch (IOException e) {
-                            // Continue despite exception
-                            Logger.debug(e);
-                        }
-                    }
-                } catch (IOException e) {
-                    throw new UncheckedIOException(e);
+        BuildrootIndex index = BuildrootIndex.of(context);
+        List<String> prefixes = new ArrayList<>();
+        prefixes.add("usr/lib/java");
+        prefixes.add("usr/share/java");
+        List<Path> jarPaths = new ArrayList<>();
+        for (String prefix : prefixes) {
+            for (BuildrootIndex.Entry entry : index.find(prefix, Integer.MAX_VALUE)) {
+                Path filePath = entry.getPath();
+                if (entry.isRegularFile() && filePath.getFileName().toString().endsWith(".jar")) {
+                    jarPaths.add(filePath);
                 }
             }
         }
+        int threads = Math.min(getThreads(), jarPaths.size());
+        if (threads > 1) {
+            Logger.debug("Analyzing " + jarPaths.size() + " JARs using " + threads + " threads");
+            gleanInParallel(jarPaths, collector, threads);
+        } else {
+            for (Path jarPath : jarPaths) {
+                glean(jarPath, collector);
+            }
+        }
     }
 
     @Override
@@ -16,45 +16,61 @@
 package io.kojan.dola.generator.jpscript;
 
 import io.kojan.dola.generator.BuildContext;
+import io.kojan.dola.generator.BuildrootIndex;
+import io.kojan.dola.generator.CacheableGenerator;
 import io.kojan.dola.generator.Collector;
-import io.kojan.dola.generator.Generator;
+import io.kojan.dola.generator.ConcurrentGenerator;
 import io.kojan.dola.generator.logging.Logger;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.charset.MalformedInputException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.stream.Stream;
+import java.util.Set;
 
-class JPackageScriptGenerator implements Generator {
+class JPackageScriptGenerator implements ConcurrentGenerator, CacheableGenerator {
     private final BuildContext context;
 
     public JPackageScriptGenerator(BuildContext context) {
         this.context = context;
     }
 
+    @Override
+    public Set<String> getRequiredMacros() {
+        return Set.of("%{buildroot}");
+    }
+
+    @Override
+    public boolean isPerFile() {
+        return true;
+    }
+
     @Override
     public void generate(Collector collector) {
-        Path buildRoot = Path.of(context.eval("%{buildroot}"));
-        Path binDir = buildRoot.resolve("usr/bin");
-        if (Files.isDirectory(binDir)) {
-            try (Stream<Path> filePaths =
-                    Files.find(binDir, 1, (path, attr) -> attr.isRegularFile())) {
-                for (Path filePath : filePaths.toList()) {
-                    String content = Files.readString(filePath);
-                    if (content.contains("\n. /usr/share/java-utils/java-functions\n")) {
-                        collector.addRequires(filePath, "javapackages-tools");
-                    }
-                    if (content.contains(
-                            "\nJAVA_HOME=\"${JAVA_HOME:-/usr/lib/jvm/jre-21-openjdk}\"\n")) {
-                        collector.addRequires(filePath, "java-21-openjdk-headless");
-                    }
+        BuildrootIndex index = BuildrootIndex.of(context);
+        if (index.isDirectory("usr/bin")) {
+            for (BuildrootIndex.Entry entry : index.find("usr/bin", 1)) {
+                if (!entry.isRegularFile()) {
+                    continue;
+                }
+                Path filePath = entry.getPath();
+                String content;
+                try {
+                    content = Files.readString(filePath);
+                } catch (MalformedInputException e) {
+                    // Continue despite exception, with the next file
+                    Logger.debug(e);
+                    continue;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (content.contains("\n. /usr/share/java-utils/java-functions\n")) {
+                    collector.addRequires(filePath, "javapackages-tools");
+                }
+                if (content.contains(
+                        "\nJAVA_HOME=\"${JAVA_HOME:-/usr/lib/jvm/jre-21-openjdk}\"\n")) {
+                    collector.addRequires(filePath, "java-21-openjdk-headless");
                 }
-            } catch (MalformedInputException e) {
-                // Continue despite exception
-                Logger.debug(e);
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
             }
         }
     }
@@ -15,6 +15,8 @@
  */
 package io.kojan.dola.generator.logging;
 
+import io.kojan.dola.rpm.RPM;
+
 public class Logger {
     private static final int BOX_WIDTH = 120;
     private static final boolean UNICODE = true;
@@ -27,10 +29,18 @@ public class Logger {
     private static final char BOX_DIVIDER = UNICODE ? '─' : '-';
     private static final char BOX_BORDER_HORIZONTAL = UNICODE ? '═' : '#';
     private static final char BOX_BORDER_VERTICAL = UNICODE ? '║' : '#';
-    private static boolean debugEnabled;
+
+    // Kept per rpm session, as the same JVM may serve multiple builds
+    private static class State {
+        volatile boolean debugEnabled;
+    }
+
+    private static State state() {
+        return RPM.sessionObject(State.class, State::new);
+    }
 
     public static void enableDebug() {
-        debugEnabled = true;
+        state().debugEnabled = true;
     }
 
     private static String repeat(char c, int n) {
@@ -38,13 +48,13 @@ public class Logger {
     }
 
     private static void print(String msg) {
-        if (debugEnabled) {
+        if (state().debugEnabled) {
             System.err.println(msg);
         }
     }
 
     private static void flush() {
-        if (debugEnabled) {
+        if (state().debugEnabled) {
             System.err.flush();
         }
     }
@@ -73,7 +83,7 @@ public class Logger {
     }
 
     public static void debug(Throwable t) {
-        if (debugEnabled) {
+        if (state().debugEnabled) {
             t.printStackTrace();
         }
     }
@@ -16,8 +16,10 @@
 package io.kojan.dola.generator.maven;
 
 import io.kojan.dola.generator.BuildContext;
+import io.kojan.dola.generator.BuildrootIndex;
+import io.kojan.dola.generator.CacheableGenerator;
 import io.kojan.dola.generator.Collector;
-import io.kojan.dola.generator.Generator;
+import io.kojan.dola.generator.ConcurrentGenerator;
 import io.kojan.dola.generator.logging.Logger;
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -75,7 +77,7 @@ class UniqueArtifact {
     }
 }
 
-class MavenGenerator implements Generator {
+class MavenGenerator implements ConcurrentGenerator, CacheableGenerator {
     private final BuildContext context;
     private final MetadataResolver metadataResolver;
     private final Resolver resolver;
@@ -167,14 +169,30 @@ class MavenGenerator implements Generator {
         return formatDep(depa, null, ns);
     }
 
+    @Override
+    public Set<String> getRequiredMacros() {
+        return Set.of("%{buildroot}");
+    }
+
+    // Dependencies on other packages are resolved from metadata installed in the system, as
+    // configured by XMvn configuration
+    @Override
+    public List<Path> getExternalInputs() {
+        return List.of(
+                Path.of("/usr/share/maven-metadata"),
+                Path.of("/etc/xdg/xmvn"),
+                Path.of("/usr/share/xmvn"));
+    }
+
     @Override
     public void generate(Collector collector) {
-        Path buildRoot = Path.of(context.eval("%{buildroot}"));
+        BuildrootIndex index = BuildrootIndex.of(context);
+        Path buildRoot = index.getBuildRoot();
         Path prefix = buildRoot.resolve("usr/share/maven-metadata");
         Map<Artifact, List<UniqueArtifact>> myArtifacts = new LinkedHashMap<>();
         Set<Artifact> skipped = new LinkedHashSet<>();
         List<UniqueArtifact> umds = new ArrayList<>();
-        if (Files.isDirectory(prefix)) {
+        if (index.isDirectory("usr/share/maven-metadata")) {
             MetadataRequest mdReq = new MetadataRequest(List.of(prefix.toString()));
             metadataResolver
                     .resolveMetadata(mdReq)
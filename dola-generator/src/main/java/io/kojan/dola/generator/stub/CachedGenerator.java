@@ -0,0 +1,171 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator.stub;
+
+import io.kojan.dola.generator.BuildrootIndex;
+import io.kojan.dola.generator.CacheableGenerator;
+import io.kojan.dola.generator.Collector;
+import io.kojan.dola.generator.Generator;
+import io.kojan.dola.generator.logging.Logger;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+class CachedGenerator implements Generator {
+    private final CacheableGenerator delegate;
+    private final String generatorClass;
+    private final RecordingBuildContext context;
+    private final GeneratorCache cache;
+
+    class RecordingCollector implements Collector {
+        private final Collector delegate;
+        private final Path buildRoot;
+        private final List<String[]> deps = Collections.synchronizedList(new ArrayList<>());
+
+        public RecordingCollector(Collector collector, Path buildRoot) {
+            this.delegate = collector;
+            this.buildRoot = buildRoot;
+        }
+
+        private void record(String kind, Path filePath, String name) {
+            deps.add(new String[] {kind, buildRoot.relativize(filePath).toString(), name});
+        }
+
+        @Override
+        public void addProvides(Path filePath, String name) {
+            record("provides", filePath, name);
+            delegate.addProvides(filePath, name);
+        }
+
+        @Override
+        public void addRequires(Path filePath, String name) {
+            record("requires", filePath, name);
+            delegate.addRequires(filePath, name);
+        }
+    }
+
+    public CachedGenerator(
+            CacheableGenerator delegate,
+            String generatorClass,
+            RecordingBuildContext context,
+            GeneratorCache cache) {
+        this.delegate = delegate;
+        this.generatorClass = generatorClass;
+        this.context = context;
+        this.cache = cache;
+    }
+
+    // Returns paths of entries whose cached results can be reused, which are either all entries,
+    // or some of them in case of per-file generator
+    private Set<String> getReusable(BuildrootIndex index, GeneratorCache.Result cached) {
+        Set<String> unchanged = cache.getUnchanged(index, cached);
+        if (unchanged.size() == index.size() && cached.files.size() == index.size()) {
+            return unchanged;
+        }
+        if (delegate.isPerFile() && cached.isReusablePerFile()) {
+            return unchanged;
+        }
+        return Set.of();
+    }
+
+    @Override
+    public void generate(Collector collector) {
+        BuildrootIndex index = context.getBuildrootIndex();
+        Path buildRoot = index.getBuildRoot();
+        byte[] externalDigest = cache.getExternalDigest(delegate.getExternalInputs());
+        if (externalDigest == null) {
+            delegate.generate(collector);
+            return;
+        }
+        GeneratorCache.Result cached = cache.load(generatorClass, buildRoot);
+        Set<String> reusable = null;
+        try {
+            if (cached != null && cached.isValid(context, externalDigest)) {
+                reusable = getReusable(index, cached);
+            }
+        } catch (UncheckedIOException e) {
+            // Continue despite exception, without using cached results
+            Logger.debug(e);
+        }
+        if (reusable == null) {
+            reusable = Set.of();
+        } else if (reusable.size() == index.size() && cached.files.size() == index.size()) {
+            Logger.debug("Using cached results");
+            cached.replay(context, buildRoot, collector, null);
+            return;
+        }
+
+        List<String[]> evaluations = new ArrayList<>();
+        List<String[]> deps = new ArrayList<>();
+        if (!reusable.isEmpty()) {
+            Logger.debug(
+                    "Using cached results for "
+                            + reusable.size()
+                            + " of "
+                            + index.size()
+                            + " buildroot entries");
+            cached.replay(context, buildRoot, collector, reusable);
+            evaluations.addAll(cached.evaluations);
+            for (String[] dep : cached.deps) {
+                if (reusable.contains(dep[1])) {
+                    deps.add(dep);
+                }
+            }
+            List<String> changed = new ArrayList<>();
+            for (BuildrootIndex.Entry entry : index.getEntries()) {
+                if (!reusable.contains(entry.getRelativePath())) {
+                    changed.add(entry.getRelativePath());
+                }
+            }
+            context.restrict(index.restrict(changed));
+        }
+        RecordingCollector recordingCollector = new RecordingCollector(collector, buildRoot);
+        context.startRecording();
+        try {
+            delegate.generate(recordingCollector);
+        } finally {
+            context.restrict(null);
+            Set<String> known = new HashSet<>();
+            for (String[] evaluation : evaluations) {
+                known.add(evaluation[0]);
+            }
+            for (String[] evaluation : context.stopRecording()) {
+                if (!known.contains(evaluation[0])) {
+                    evaluations.add(evaluation);
+                }
+            }
+        }
+        deps.addAll(recordingCollector.deps);
+        try {
+            GeneratorCache.Result result =
+                    new GeneratorCache.Result(
+                            externalDigest, evaluations, cache.getStates(index, cached), deps);
+            cache.store(generatorClass, buildRoot, result);
+        } catch (UncheckedIOException e) {
+            // Continue despite exception, without caching results
+            Logger.debug(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -0,0 +1,81 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator.stub;
+
+import io.kojan.dola.generator.BuildContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Remembers expansions of macros that stay the same for the whole build, so that they cross into
+// rpm only once
+class CachingBuildContext implements BuildContext {
+    static final Set<String> INVARIANT_MACROS =
+            Set.of(
+                    "%{buildroot}",
+                    "%{_javadir}",
+                    "%{_jnidir}",
+                    "%{NAME}",
+                    "%{?EPOCH}",
+                    "%{VERSION}",
+                    "%{RELEASE}");
+
+    private final BuildContext delegate;
+    private final Map<String, String> cache = new ConcurrentHashMap<>();
+
+    public CachingBuildContext(BuildContext delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String eval(String macro) {
+        if (INVARIANT_MACROS.contains(macro)) {
+            return cache.computeIfAbsent(macro, delegate::eval);
+        }
+        return delegate.eval(macro);
+    }
+
+    @Override
+    public List<String> evalAll(List<String> macros) {
+        List<String> result = new ArrayList<>(macros.size());
+        List<String> misses = new ArrayList<>();
+        for (String macro : macros) {
+            String value = cache.get(macro);
+            if (value == null) {
+                misses.add(macro);
+            }
+            result.add(value);
+        }
+        if (!misses.isEmpty()) {
+            // Expand everything that is not cached at once
+            List<String> values = delegate.evalAll(misses);
+            int j = 0;
+            for (int i = 0; i < result.size(); i++) {
+                if (result.get(i) == null) {
+                    String macro = macros.get(i);
+                    String value = values.get(j++);
+                    if (INVARIANT_MACROS.contains(macro)) {
+                        cache.putIfAbsent(macro, value);
+                    }
+                    result.set(i, value);
+                }
+            }
+        }
+        return result;
+    }
+}
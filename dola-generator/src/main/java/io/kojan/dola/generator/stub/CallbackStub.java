@@ -15,12 +15,15 @@
  */
 package io.kojan.dola.generator.stub;
 
+import io.kojan.dola.rpm.RPM;
 import java.io.IOException;
 
 public class CallbackStub {
-    private static final CompoundHook INSTANCE = new CompoundHook(new RpmBuildContext());
-
     public static String postInstall() throws IOException {
-        return INSTANCE.setUpHook();
+        CompoundHook hook =
+                RPM.sessionObject(
+                        CompoundHook.class,
+                        () -> new CompoundHook(new CachingBuildContext(new RpmBuildContext())));
+        return hook.setUpHook();
     }
 }
@@ -0,0 +1,96 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator.stub;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+// Encodes text as UTF-8 into a reusable direct buffer, which is written out to a channel whenever
+// it fills up, so that output of any size is streamed through a fixed amount of memory.
+// Characters appended in one call must not end in the middle of a surrogate pair.
+class ChannelWriter implements Appendable {
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder =
+            StandardCharsets.UTF_8
+                    .newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private WritableByteChannel channel;
+
+    public ChannelWriter(int capacity) {
+        buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    public void open(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer.clear();
+        encoder.reset();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void encode(CharBuffer in, boolean endOfInput) throws IOException {
+        while (encoder.encode(in, buffer, endOfInput).isOverflow()) {
+            drain();
+        }
+    }
+
+    @Override
+    public ChannelWriter append(CharSequence csq) throws IOException {
+        encode(CharBuffer.wrap(csq), false);
+        return this;
+    }
+
+    @Override
+    public ChannelWriter append(CharSequence csq, int start, int end) throws IOException {
+        encode(CharBuffer.wrap(csq, start, end), false);
+        return this;
+    }
+
+    @Override
+    public ChannelWriter append(char c) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else {
+            encode(CharBuffer.wrap(new char[] {c}), false);
+        }
+        return this;
+    }
+
+    /** Writes out all buffered output. The channel itself is left open. */
+    public void finish() throws IOException {
+        encode(CharBuffer.allocate(0), true);
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+        drain();
+        channel = null;
+    }
+}
@@ -16,38 +16,88 @@
 package io.kojan.dola.generator.stub;
 
 import io.kojan.dola.generator.BuildContext;
+import io.kojan.dola.generator.BuildrootIndex;
+import io.kojan.dola.generator.CacheableGenerator;
+import io.kojan.dola.generator.ConcurrentGenerator;
 import io.kojan.dola.generator.Generator;
 import io.kojan.dola.generator.GeneratorFactory;
 import io.kojan.dola.generator.logging.Logger;
+import io.kojan.dola.rpm.Memory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 class CompoundGenerator {
-    private final BuildContext buildContext;
-    private final List<FilteredGenerator> generators;
+    private final IndexingBuildContext buildContext;
+    private List<GeneratorSlot> generators;
     private final boolean multifile;
+    private final boolean concurrent;
+    private final GeneratorCache cache;
     private DepsCollector collector;
+    // Reused for every streamed output
+    private final ChannelWriter writer = new ChannelWriter(64 * 1024);
 
-    private Generator loadGenerator(String cn) {
+    // Generator together with build context private to it
+    static class GeneratorSlot {
+        final Generator generator;
+        final SnapshotBuildContext context;
+        // Macros needed by generator, or null if generator cannot run concurrently
+        final Set<String> requiredMacros;
+
+        GeneratorSlot(Generator generator, SnapshotBuildContext context, Set<String> macros) {
+            this.generator = generator;
+            this.context = context;
+            this.requiredMacros = macros;
+        }
+    }
+
+    private GeneratorSlot loadGenerator(String cn, boolean provides, boolean requires) {
         try {
             ClassLoader cl = Thread.currentThread().getContextClassLoader();
             GeneratorFactory factory =
                     (GeneratorFactory) cl.loadClass(cn).getDeclaredConstructor().newInstance();
-            return factory.createGenerator(buildContext);
+            SnapshotBuildContext snapshotContext = new SnapshotBuildContext(buildContext);
+            RecordingBuildContext recordingContext =
+                    cache != null ? new RecordingBuildContext(snapshotContext) : null;
+            Generator generator =
+                    factory.createGenerator(
+                            recordingContext != null ? recordingContext : snapshotContext);
+            Set<String> requiredMacros =
+                    generator instanceof ConcurrentGenerator concurrentGenerator
+                            ? concurrentGenerator.getRequiredMacros()
+                            : null;
+            if (recordingContext != null && generator instanceof CacheableGenerator cacheable) {
+                generator = new CachedGenerator(cacheable, cn, recordingContext, cache);
+            }
+            return new GeneratorSlot(
+                    new FilteredGenerator(generator, provides, requires),
+                    snapshotContext,
+                    requiredMacros);
         } catch (ReflectiveOperationException e) {
             throw new RuntimeException(e);
         }
     }
 
     public CompoundGenerator(BuildContext buildContext) {
-        this.buildContext = buildContext;
+        this.buildContext = new IndexingBuildContext(buildContext);
         if (!buildContext.eval("%{?__dolagen_debug}").isEmpty()) {
             Logger.enableDebug();
         }
         multifile = buildContext.eval("%{?__dolagen_protocol}").equals("multifile");
+        concurrent = !buildContext.eval("%{?__dolagen_concurrent_generators}").isEmpty();
+        String cacheDir = buildContext.eval("%{?__dolagen_cache_dir}");
+        cache = cacheDir.isEmpty() ? null : new GeneratorCache(Path.of(cacheDir));
         Set<String> provCns =
                 Set.of(buildContext.eval("%{?__dolagen_provides_generators}").split("\\s+"));
         Set<String> reqCns =
@@ -58,47 +108,121 @@ class CompoundGenerator {
         generators =
                 allCns.stream()
                         .filter(cn -> !cn.isEmpty())
-                        .map(
-                                cn ->
-                                        new FilteredGenerator(
-                                                loadGenerator(cn),
-                                                provCns.contains(cn),
-                                                reqCns.contains(cn)))
+                        .map(cn -> loadGenerator(cn, provCns.contains(cn), reqCns.contains(cn)))
                         .collect(Collectors.toUnmodifiableList());
         if (generators.isEmpty()) {
             buildContext.eval("%{warn:dola-generator: no generators were specified}");
         }
     }
 
-    public String runGenerator(String kind) {
+    private void runSequentially(Generator generator) {
+        Logger.startNewSection();
+        Logger.debug("Running " + generator + " (" + generator.getClass().getCanonicalName() + ")");
+        generator.generate(collector);
+    }
+
+    private void runConcurrently() {
+        List<GeneratorSlot> concurrentSlots = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (GeneratorSlot slot : generators) {
+                if (slot.requiredMacros != null) {
+                    // Expand all macros needed by generator while still on the rpm thread
+                    slot.context.takeSnapshot(slot.requiredMacros);
+                    concurrentSlots.add(slot);
+                    Logger.startNewSection();
+                    Logger.debug("Running " + slot.generator + " concurrently");
+                    futures.add(executor.submit(() -> slot.generator.generate(collector)));
+                }
+            }
+            // Generators that need rpm are ran on the rpm thread in the meantime
+            for (GeneratorSlot slot : generators) {
+                if (slot.requiredMacros == null) {
+                    runSequentially(slot.generator);
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            for (GeneratorSlot slot : concurrentSlots) {
+                slot.context.releaseSnapshot();
+            }
+        }
+    }
+
+    private void runGenerator(String kind, Appendable out) throws IOException {
         if (collector == null) {
             Path buildRoot = Path.of(buildContext.eval("%{buildroot}"));
             collector = new DepsCollector(buildRoot);
             Logger.startLogging();
-            for (Generator generator : generators) {
-                Logger.startNewSection();
-                Logger.debug(
-                        "Running "
-                                + generator
-                                + " ("
-                                + generator.getClass().getCanonicalName()
-                                + ")");
-                generator.generate(collector);
+            // Walk buildroot just once, generators query the index instead
+            BuildrootIndex index = buildContext.reindex(buildRoot);
+            Logger.debug("Indexed " + index.size() + " buildroot entries");
+            if (concurrent) {
+                runConcurrently();
+            } else {
+                for (GeneratorSlot slot : generators) {
+                    runSequentially(slot.generator);
+                }
             }
             Logger.finishLogging();
+            // Generators ran just once, only collected deps are needed from now on
+            generators = List.of();
+            Memory.release("generators");
         }
-        StringBuilder sb = new StringBuilder();
         int n = Integer.parseInt(buildContext.eval("%#"));
+        List<String> args = new ArrayList<>(n);
         for (int i = 1; i <= n; i++) {
-            Path filePath = Path.of(buildContext.eval("%" + i));
+            args.add("%" + i);
+        }
+        // File arguments are expanded all at once rather than one by one
+        for (String arg : buildContext.evalAll(args)) {
+            Path filePath = Path.of(arg);
             Set<String> deps = collector.getDeps(filePath, kind);
             if (multifile && !deps.isEmpty()) {
-                sb.append(';').append(filePath).append('\n');
+                out.append(';').append(filePath.toString()).append('\n');
             }
             for (String dep : deps) {
-                sb.append(dep).append('\n');
+                out.append(dep).append('\n');
             }
         }
+    }
+
+    public String runGenerator(String kind) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            runGenerator(kind, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
         return sb.toString();
     }
+
+    /**
+     * Runs generators like {@link #runGenerator(String)}, but instead of returning the output as a
+     * string, streams it to given file as UTF-8, file by file.
+     */
+    public void runGenerator(String kind, Path outputPath) {
+        try (FileChannel channel =
+                FileChannel.open(
+                        outputPath,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            writer.open(channel);
+            runGenerator(kind, writer);
+            writer.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
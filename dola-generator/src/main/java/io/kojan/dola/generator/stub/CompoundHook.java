@@ -61,6 +61,6 @@ class CompoundHook {
 
     public String setUpHook() throws IOException {
         Callback cb = Callback.setUp(this::runHook);
-        return String.join(" ", cb.getCommand());
+        return cb.getShellCommand();
     }
 }
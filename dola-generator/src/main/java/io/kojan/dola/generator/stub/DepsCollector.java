@@ -18,22 +18,24 @@ package io.kojan.dola.generator.stub;
 import io.kojan.dola.generator.Collector;
 import io.kojan.dola.generator.logging.Logger;
 import java.nio.file.Path;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
+// Safe to be used by generators from multiple threads at the same time.  Dependencies are kept
+// in sorted sets, so that output does not depend on the order in which they were found.
 public class DepsCollector implements Collector {
-    private final Map<Path, Set<String>> provides = new LinkedHashMap<>();
-    private final Map<Path, Set<String>> requires = new LinkedHashMap<>();
+    private final Map<Path, Set<String>> provides = new ConcurrentHashMap<>();
+    private final Map<Path, Set<String>> requires = new ConcurrentHashMap<>();
     private final Path buildRoot;
-    private Path lastPath;
+    private final ThreadLocal<Path> lastPath = new ThreadLocal<>();
 
     private void found(String kind, Path filePath, String dep) {
-        if (!filePath.equals(lastPath)) {
+        if (!filePath.equals(lastPath.get())) {
             Path shortPath = Path.of("/").resolve(buildRoot.relativize(filePath));
             Logger.debug("=> " + shortPath);
-            lastPath = filePath;
+            lastPath.set(filePath);
         }
         Logger.debug("  -> found " + kind + ": " + dep);
     }
@@ -44,21 +46,23 @@ public class DepsCollector implements Collector {
 
     @Override
     public void addProvides(Path filePath, String dep) {
-        provides.computeIfAbsent(filePath, x -> new TreeSet<>()).add(dep);
+        provides.computeIfAbsent(filePath, x -> new ConcurrentSkipListSet<>()).add(dep);
         found("Provides", filePath, dep);
     }
 
     @Override
     public void addRequires(Path filePath, String dep) {
-        requires.computeIfAbsent(filePath, x -> new TreeSet<>()).add(dep);
+        requires.computeIfAbsent(filePath, x -> new ConcurrentSkipListSet<>()).add(dep);
         found("Requires", filePath, dep);
     }
 
     public Set<String> getDeps(Path filePath, String kind) {
-        return switch (kind) {
-            case "provides" -> provides.computeIfAbsent(filePath, x -> new TreeSet<>());
-            case "requires" -> requires.computeIfAbsent(filePath, x -> new TreeSet<>());
-            default -> Set.of();
-        };
+        Map<Path, Set<String>> deps =
+                switch (kind) {
+                    case "provides" -> provides;
+                    case "requires" -> requires;
+                    default -> Map.of();
+                };
+        return deps.getOrDefault(filePath, Set.of());
     }
 }
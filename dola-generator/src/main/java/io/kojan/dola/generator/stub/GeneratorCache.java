@@ -0,0 +1,368 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator.stub;
+
+import io.kojan.dola.generator.BuildContext;
+import io.kojan.dola.generator.BuildrootIndex;
+import io.kojan.dola.generator.Collector;
+import io.kojan.dola.generator.logging.Logger;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Persistent cache of generator results, keyed by generator class and buildroot path.  Results
+// are stored together with state of every buildroot entry they were generated from: its type,
+// size, modification time and digest of contents.  Contents are read again only for entries
+// whose size or modification time changed.
+class GeneratorCache {
+    private static final int MAGIC = 0x646f6c61;
+    private static final int VERSION = 2;
+    private static final byte[] NO_DIGEST = new byte[0];
+
+    private final Path cacheDir;
+    // Digests of entry contents computed during this run, shared by all generators
+    private final Map<String, byte[]> digests = new ConcurrentHashMap<>();
+
+    // State of buildroot entry that results were generated from
+    static class FileState {
+        final String type;
+        final long size;
+        final long mtime;
+        final byte[] digest;
+
+        FileState(String type, long size, long mtime, byte[] digest) {
+            this.type = type;
+            this.size = size;
+            this.mtime = mtime;
+            this.digest = digest;
+        }
+
+        boolean hasSameMetadata(BuildrootIndex.Entry entry) {
+            return type.equals(entry.getType().name())
+                    && size == entry.getSize()
+                    && mtime == mtime(entry);
+        }
+    }
+
+    static class Result {
+        // Digest of inputs of the generator located outside of buildroot
+        final byte[] externalDigest;
+        // Pairs of macro and its expansion, in evaluation order
+        final List<String[]> evaluations;
+        // States of buildroot entries, keyed by path relative to buildroot
+        final Map<String, FileState> files;
+        // Triples of dependency kind, file path relative to buildroot and dependency
+        final List<String[]> deps;
+
+        Result(
+                byte[] externalDigest,
+                List<String[]> evaluations,
+                Map<String, FileState> files,
+                List<String[]> deps) {
+            this.externalDigest = externalDigest;
+            this.evaluations = evaluations;
+            this.files = files;
+            this.deps = deps;
+        }
+
+        private static boolean isMessage(String macro) {
+            return macro.startsWith("%{error:") || macro.startsWith("%{warn:");
+        }
+
+        boolean isValid(BuildContext context, byte[] currentExternalDigest) {
+            if (!Arrays.equals(externalDigest, currentExternalDigest)) {
+                Logger.debug("Cached results are stale, external inputs changed");
+                return false;
+            }
+            for (String[] evaluation : evaluations) {
+                if (!isMessage(evaluation[0])
+                        && !context.eval(evaluation[0]).equals(evaluation[1])) {
+                    Logger.debug("Cached results are stale, macro " + evaluation[0] + " changed");
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Messages cannot be attributed to particular files, and dependencies can be attributed
+        // only to files that are part of buildroot
+        boolean isReusablePerFile() {
+            for (String[] evaluation : evaluations) {
+                if (isMessage(evaluation[0])) {
+                    return false;
+                }
+            }
+            for (String[] dep : deps) {
+                if (!files.containsKey(dep[1])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Replays dependencies of given files, or of all files if null is given
+        void replay(BuildContext context, Path buildRoot, Collector collector, Set<String> paths) {
+            for (String[] evaluation : evaluations) {
+                if (isMessage(evaluation[0])) {
+                    context.eval(evaluation[0]);
+                }
+            }
+            for (String[] dep : deps) {
+                if (paths != null && !paths.contains(dep[1])) {
+                    continue;
+                }
+                Path filePath = buildRoot.resolve(dep[1]);
+                if (dep[0].equals("provides")) {
+                    collector.addProvides(filePath, dep[2]);
+                } else {
+                    collector.addRequires(filePath, dep[2]);
+                }
+            }
+        }
+    }
+
+    public GeneratorCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void update(MessageDigest md, String s) {
+        md.update(s.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+    }
+
+    private static long mtime(BuildrootIndex.Entry entry) {
+        return entry.getLastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns digest of paths, sizes and modification times of all files found under given paths,
+     * or {@code null} if they could not be read.
+     */
+    public byte[] getExternalDigest(List<Path> inputs) {
+        MessageDigest md = newDigest();
+        try {
+            for (Path input : inputs) {
+                update(md, input.toString());
+                if (!Files.exists(input)) {
+                    update(md, "missing");
+                    continue;
+                }
+                try (Stream<Path> paths = Files.walk(input)) {
+                    for (Path path : paths.sorted().toList()) {
+                        BasicFileAttributes attr =
+                                Files.readAttributes(path, BasicFileAttributes.class);
+                        update(md, path.toString());
+                        update(md, attr.size() + ":" + attr.lastModifiedTime().toMillis());
+                    }
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // Continue despite exception, without caching
+            Logger.debug(e);
+            return null;
+        }
+        return md.digest();
+    }
+
+    private byte[] digest(BuildrootIndex.Entry entry) {
+        if (!entry.isRegularFile() && entry.getType() != BuildrootIndex.Type.SYMLINK) {
+            return NO_DIGEST;
+        }
+        byte[] digest = digests.get(entry.getRelativePath());
+        if (digest == null) {
+            MessageDigest md = newDigest();
+            try {
+                if (entry.isRegularFile()) {
+                    try (InputStream is = Files.newInputStream(entry.getPath());
+                            DigestOutputStream os =
+                                    new DigestOutputStream(OutputStream.nullOutputStream(), md)) {
+                        is.transferTo(os);
+                    }
+                } else {
+                    update(md, Files.readSymbolicLink(entry.getPath()).toString());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            digest = md.digest();
+            digests.putIfAbsent(entry.getRelativePath(), digest);
+        }
+        return digest;
+    }
+
+    /** Returns paths of listed index entries whose state is the same as recorded in results. */
+    public Set<String> getUnchanged(BuildrootIndex index, Result result) {
+        Set<String> unchanged = new HashSet<>();
+        for (BuildrootIndex.Entry entry : index.getEntries()) {
+            FileState state = result.files.get(entry.getRelativePath());
+            if (state == null || !state.type.equals(entry.getType().name())) {
+                continue;
+            }
+            if (entry.isRegularFile() && state.size != entry.getSize()) {
+                continue;
+            }
+            if (state.hasSameMetadata(entry) || Arrays.equals(state.digest, digest(entry))) {
+                unchanged.add(entry.getRelativePath());
+            }
+        }
+        return unchanged;
+    }
+
+    /**
+     * Returns current states of listed index entries. Digests recorded in previous results are
+     * reused for entries whose size and modification time did not change.
+     */
+    public Map<String, FileState> getStates(BuildrootIndex index, Result previous) {
+        Map<String, FileState> states = new LinkedHashMap<>();
+        for (BuildrootIndex.Entry entry : index.getEntries()) {
+            FileState state = previous != null ? previous.files.get(entry.getRelativePath()) : null;
+            byte[] digest =
+                    state != null && state.hasSameMetadata(entry) ? state.digest : digest(entry);
+            states.put(
+                    entry.getRelativePath(),
+                    new FileState(entry.getType().name(), entry.getSize(), mtime(entry), digest));
+        }
+        return states;
+    }
+
+    private Path getEntryPath(String generatorClass, Path buildRoot) {
+        MessageDigest md = newDigest();
+        update(md, generatorClass);
+        update(md, buildRoot.toString());
+        return cacheDir.resolve(HexFormat.of().formatHex(md.digest()));
+    }
+
+    private static byte[] readBytes(DataInputStream dis) throws IOException {
+        byte[] bytes = new byte[dis.readInt()];
+        dis.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream dos, byte[] bytes) throws IOException {
+        dos.writeInt(bytes.length);
+        dos.write(bytes);
+    }
+
+    public Result load(String generatorClass, Path buildRoot) {
+        try (DataInputStream dis =
+                new DataInputStream(
+                        new BufferedInputStream(
+                                Files.newInputStream(getEntryPath(generatorClass, buildRoot))))) {
+            if (dis.readInt() != MAGIC || dis.readInt() != VERSION) {
+                return null;
+            }
+            byte[] externalDigest = readBytes(dis);
+            List<String[]> evaluations = new ArrayList<>();
+            for (int i = dis.readInt(); i > 0; i--) {
+                evaluations.add(new String[] {dis.readUTF(), dis.readUTF()});
+            }
+            Map<String, FileState> files = new LinkedHashMap<>();
+            for (int i = dis.readInt(); i > 0; i--) {
+                String path = dis.readUTF();
+                files.put(
+                        path,
+                        new FileState(
+                                dis.readUTF(), dis.readLong(), dis.readLong(), readBytes(dis)));
+            }
+            List<String[]> deps = new ArrayList<>();
+            for (int i = dis.readInt(); i > 0; i--) {
+                deps.add(new String[] {dis.readUTF(), dis.readUTF(), dis.readUTF()});
+            }
+            return new Result(externalDigest, evaluations, files, deps);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // Continue despite exception
+            Logger.debug(e);
+            return null;
+        }
+    }
+
+    public void store(String generatorClass, Path buildRoot, Result result) {
+        try {
+            Files.createDirectories(cacheDir);
+            Path entryPath = getEntryPath(generatorClass, buildRoot);
+            Path tempPath = Files.createTempFile(cacheDir, "entry-", ".tmp");
+            try (DataOutputStream dos =
+                    new DataOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                dos.writeInt(MAGIC);
+                dos.writeInt(VERSION);
+                writeBytes(dos, result.externalDigest);
+                dos.writeInt(result.evaluations.size());
+                for (String[] evaluation : result.evaluations) {
+                    dos.writeUTF(evaluation[0]);
+                    dos.writeUTF(evaluation[1]);
+                }
+                dos.writeInt(result.files.size());
+                for (Map.Entry<String, FileState> file : result.files.entrySet()) {
+                    FileState state = file.getValue();
+                    dos.writeUTF(file.getKey());
+                    dos.writeUTF(state.type);
+                    dos.writeLong(state.size);
+                    dos.writeLong(state.mtime);
+                    writeBytes(dos, state.digest);
+                }
+                dos.writeInt(result.deps.size());
+                for (String[] dep : result.deps) {
+                    dos.writeUTF(dep[0]);
+                    dos.writeUTF(dep[1]);
+                    dos.writeUTF(dep[2]);
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.delete(tempPath);
+                throw e;
+            }
+            Files.move(tempPath, entryPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UncheckedIOException e) {
+            // Continue despite exception
+            Logger.debug(e);
+        }
+    }
+}
@@ -15,10 +15,23 @@
  */
 package io.kojan.dola.generator.stub;
 
+import io.kojan.dola.rpm.RPM;
+import java.nio.file.Path;
+
 public class GeneratorStub {
-    private static final CompoundGenerator INSTANCE = new CompoundGenerator(new RpmBuildContext());
+    // Generator caches its results and macro values, so there is one per rpm session
+    private static CompoundGenerator instance() {
+        return RPM.sessionObject(
+                CompoundGenerator.class,
+                () -> new CompoundGenerator(new CachingBuildContext(new RpmBuildContext())));
+    }
 
     public static String trampoline(String kind) {
-        return INSTANCE.runGenerator(kind);
+        return instance().runGenerator(kind);
+    }
+
+    public static String trampolineToFile(String kind, String outputPath) {
+        instance().runGenerator(kind, Path.of(outputPath));
+        return "";
     }
 }
@@ -0,0 +1,54 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator.stub;
+
+import io.kojan.dola.generator.BuildContext;
+import io.kojan.dola.generator.BuildrootIndex;
+import io.kojan.dola.generator.IndexedBuildContext;
+import java.nio.file.Path;
+import java.util.List;
+
+class IndexingBuildContext implements IndexedBuildContext {
+    private final BuildContext delegate;
+    private BuildrootIndex index;
+
+    public IndexingBuildContext(BuildContext delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String eval(String macro) {
+        return delegate.eval(macro);
+    }
+
+    @Override
+    public List<String> evalAll(List<String> macros) {
+        return delegate.evalAll(macros);
+    }
+
+    public BuildrootIndex reindex(Path buildRoot) {
+        index = BuildrootIndex.scan(buildRoot);
+        return index;
+    }
+
+    @Override
+    public BuildrootIndex getBuildrootIndex() {
+        if (index == null) {
+            return reindex(Path.of(eval("%{buildroot}")));
+        }
+        return index;
+    }
+}
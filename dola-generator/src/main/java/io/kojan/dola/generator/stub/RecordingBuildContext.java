@@ -0,0 +1,61 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator.stub;
+
+import io.kojan.dola.generator.BuildrootIndex;
+import io.kojan.dola.generator.IndexedBuildContext;
+import java.util.ArrayList;
+import java.util.List;
+
+// Remembers which macros a generator evaluated and what they expanded to.  Also allows
+// restricting buildroot index seen by the generator to entries whose results are not cached.
+class RecordingBuildContext implements IndexedBuildContext {
+    private final IndexedBuildContext delegate;
+    private List<String[]> evaluations;
+    private BuildrootIndex restrictedIndex;
+
+    public RecordingBuildContext(IndexedBuildContext delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String eval(String macro) {
+        String value = delegate.eval(macro);
+        if (evaluations != null) {
+            evaluations.add(new String[] {macro, value});
+        }
+        return value;
+    }
+
+    @Override
+    public BuildrootIndex getBuildrootIndex() {
+        return restrictedIndex != null ? restrictedIndex : delegate.getBuildrootIndex();
+    }
+
+    public void restrict(BuildrootIndex index) {
+        restrictedIndex = index;
+    }
+
+    public void startRecording() {
+        evaluations = new ArrayList<>();
+    }
+
+    public List<String[]> stopRecording() {
+        List<String[]> result = evaluations;
+        evaluations = null;
+        return result;
+    }
+}
@@ -16,12 +16,19 @@
 package io.kojan.dola.generator.stub;
 
 import static io.kojan.dola.rpm.RPM.rpmExpand;
+import static io.kojan.dola.rpm.RPM.rpmExpandAll;
 
 import io.kojan.dola.generator.BuildContext;
+import java.util.List;
 
 class RpmBuildContext implements BuildContext {
     @Override
     public String eval(String macro) {
         return rpmExpand(macro);
     }
+
+    @Override
+    public List<String> evalAll(List<String> macros) {
+        return List.of(rpmExpandAll(macros.toArray(String[]::new)));
+    }
 }
@@ -0,0 +1,78 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator.stub;
+
+import io.kojan.dola.generator.BuildrootIndex;
+import io.kojan.dola.generator.IndexedBuildContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// While a snapshot is taken, macros are not expanded by rpm, but looked up in the snapshot
+// instead, which allows generators to run outside of the rpm thread.
+class SnapshotBuildContext implements IndexedBuildContext {
+    private final IndexedBuildContext delegate;
+    private volatile Map<String, String> snapshot;
+    private final List<String> deferredMessages = Collections.synchronizedList(new ArrayList<>());
+
+    public SnapshotBuildContext(IndexedBuildContext delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String eval(String macro) {
+        Map<String, String> snapshot = this.snapshot;
+        if (snapshot == null) {
+            return delegate.eval(macro);
+        }
+        String value = snapshot.get(macro);
+        if (value != null) {
+            return value;
+        }
+        if (macro.startsWith("%{error:") || macro.startsWith("%{warn:")) {
+            deferredMessages.add(macro);
+            return "";
+        }
+        throw new IllegalStateException(
+                "Macro " + macro + " was not declared as required by generator");
+    }
+
+    @Override
+    public BuildrootIndex getBuildrootIndex() {
+        return delegate.getBuildrootIndex();
+    }
+
+    // Must be called on the rpm thread
+    public void takeSnapshot(Set<String> macros) {
+        Map<String, String> snapshot = new LinkedHashMap<>();
+        for (String macro : macros) {
+            snapshot.put(macro, delegate.eval(macro));
+        }
+        this.snapshot = Collections.unmodifiableMap(snapshot);
+    }
+
+    // Must be called on the rpm thread
+    public void releaseSnapshot() {
+        snapshot = null;
+        for (String message : deferredMessages) {
+            delegate.eval(message);
+        }
+        deferredMessages.clear();
+    }
+}
@@ -18,13 +18,32 @@ local bsx = require "dola-bsx"
 
 -- Run dola-generator
 local function generate(kind)
-   local deps = bsx.call1(
-      "Realm:generator",
-      "io.kojan.dola.generator.stub.GeneratorStub",
-      "trampoline",
-      kind
-   )
-   print(deps)
+   -- Output is streamed to a file rather than returned as one big string
+   local path = os.tmpname()
+   local file
+   local ok, err = pcall(function()
+      bsx.callN(
+         "Realm:generator",
+         "io.kojan.dola.generator.stub.GeneratorStub",
+         "trampolineToFile",
+         kind,
+         path
+      )
+      file = assert(io.open(path, "rb"))
+      -- Copy line by line, so that the whole output is never held in memory.
+      -- Only print() output is captured by rpm, and it terminates each line.
+      for line in file:lines() do
+         print(line)
+      end
+   end)
+   -- Clean up even if the generator failed, without masking its error
+   if file then
+      pcall(io.close, file)
+   end
+   pcall(os.remove, path)
+   if not ok then
+      error(err, 0)
+   end
 end
 
 -- Post-install hook
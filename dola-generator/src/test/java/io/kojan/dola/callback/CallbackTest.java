@@ -32,5 +32,76 @@ class CallbackTest {
         assertThat(acquired).isTrue();
         boolean joined = p.waitFor(5, TimeUnit.SECONDS);
         assertThat(joined).isTrue();
+        assertThat(p.exitValue()).isEqualTo(0);
+    }
+
+    private static int runShellCommand(Callback cb) throws Exception {
+        Process p = new ProcessBuilder("/bin/sh", "-c", cb.getShellCommand()).inheritIO().start();
+        boolean joined = p.waitFor(5, TimeUnit.SECONDS);
+        assertThat(joined).isTrue();
+        return p.exitValue();
+    }
+
+    @Test
+    void fifo() throws Exception {
+        Semaphore sema = new Semaphore(0);
+        Callback cb = Callback.setUpFifo(sema::release);
+        assertThat(cb.getCommand().get(0)).isEqualTo("/bin/sh");
+        assertThat(runShellCommand(cb)).isEqualTo(0);
+        assertThat(sema.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void fifoFailure() throws Exception {
+        Callback cb =
+                Callback.setUpFifo(
+                        () -> {
+                            throw new IllegalStateException("hook failed");
+                        });
+        assertThat(runShellCommand(cb)).isEqualTo(1);
+    }
+
+    @Test
+    void fifoError() throws Exception {
+        Callback cb =
+                Callback.setUpFifo(
+                        () -> {
+                            throw new LinkageError("hook failed");
+                        });
+        assertThat(runShellCommand(cb)).isEqualTo(1);
+    }
+
+    @Test
+    void socket() throws Exception {
+        Semaphore sema = new Semaphore(0);
+        Callback cb = Callback.setUpSocket(sema::release);
+        assertThat(runShellCommand(cb)).isEqualTo(0);
+        assertThat(sema.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void socketFailure() throws Exception {
+        Callback cb =
+                Callback.setUpSocket(
+                        () -> {
+                            throw new IllegalStateException("hook failed");
+                        });
+        assertThat(runShellCommand(cb)).isEqualTo(1);
+    }
+
+    @Test
+    void socketError() throws Exception {
+        Callback cb =
+                Callback.setUpSocket(
+                        () -> {
+                            throw new LinkageError("hook failed");
+                        });
+        assertThat(runShellCommand(cb)).isEqualTo(1);
+    }
+
+    @Test
+    void quote() {
+        assertThat(Callback.quote("/tmp/foo bar")).isEqualTo("'/tmp/foo bar'");
+        assertThat(Callback.quote("it's")).isEqualTo("'it'\\''s'");
     }
 }
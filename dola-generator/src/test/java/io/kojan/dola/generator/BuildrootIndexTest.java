@@ -0,0 +1,120 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BuildrootIndexTest {
+    @TempDir private Path br;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.createDirectories(br.resolve("usr/share/java/foo"));
+        Files.writeString(br.resolve("usr/share/java/foo/foo.jar"), "xyzzy");
+        Files.createFile(br.resolve("usr/share/java/bar.jar"));
+        Files.createDirectories(br.resolve("usr/share/java-utils"));
+        Files.createFile(br.resolve("usr/share/java-utils/java-functions"));
+        Files.createSymbolicLink(br.resolve("usr/share/java/baz.jar"), Path.of("bar.jar"));
+    }
+
+    @Test
+    void entries() {
+        BuildrootIndex index = BuildrootIndex.scan(br);
+        assertThat(index.getBuildRoot()).isEqualTo(br);
+        assertThat(index.size()).isEqualTo(9);
+        BuildrootIndex.Entry foo = index.get("/usr/share/java/foo/foo.jar");
+        assertThat(foo.getPath()).isEqualTo(br.resolve("usr/share/java/foo/foo.jar"));
+        assertThat(foo.getType()).isEqualTo(BuildrootIndex.Type.FILE);
+        assertThat(foo.getSize()).isEqualTo(5);
+        assertThat(index.get("usr/share/java/baz.jar").getType())
+                .isEqualTo(BuildrootIndex.Type.SYMLINK);
+        assertThat(index.isDirectory("usr/share/java/")).isTrue();
+        assertThat(index.isDirectory("usr/share/java/bar.jar")).isFalse();
+        assertThat(index.get("usr/lib/java")).isNull();
+    }
+
+    @Test
+    void find() {
+        BuildrootIndex index = BuildrootIndex.scan(br);
+        assertThat(index.find("usr/share/java", Integer.MAX_VALUE))
+                .extracting(BuildrootIndex.Entry::getPath)
+                .containsExactlyInAnyOrder(
+                        br.resolve("usr/share/java/foo"),
+                        br.resolve("usr/share/java/foo/foo.jar"),
+                        br.resolve("usr/share/java/bar.jar"),
+                        br.resolve("usr/share/java/baz.jar"));
+        assertThat(index.find("usr/share/java", 1))
+                .extracting(BuildrootIndex.Entry::getPath)
+                .containsExactlyInAnyOrder(
+                        br.resolve("usr/share/java/foo"),
+                        br.resolve("usr/share/java/bar.jar"),
+                        br.resolve("usr/share/java/baz.jar"));
+        assertThat(index.find("usr/lib/java", Integer.MAX_VALUE)).isEmpty();
+    }
+
+    @Test
+    void glob() {
+        BuildrootIndex index = BuildrootIndex.scan(br);
+        assertThat(index.glob("usr/share/java/**.jar"))
+                .extracting(BuildrootIndex.Entry::getPath)
+                .containsExactlyInAnyOrder(
+                        br.resolve("usr/share/java/foo/foo.jar"),
+                        br.resolve("usr/share/java/bar.jar"),
+                        br.resolve("usr/share/java/baz.jar"));
+    }
+
+    @Test
+    void restrict() {
+        BuildrootIndex index =
+                BuildrootIndex.scan(br)
+                        .restrict(List.of("usr/share/java/bar.jar", "usr/nonexistent"));
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.find("usr/share/java", Integer.MAX_VALUE))
+                .extracting(BuildrootIndex.Entry::getRelativePath)
+                .containsExactly("usr/share/java/bar.jar");
+        assertThat(index.glob("usr/share/java/**.jar")).hasSize(1);
+        // Entries which are not listed can still be looked up
+        assertThat(index.isDirectory("usr/share/java")).isTrue();
+        assertThat(index.get("usr/share/java/foo/foo.jar").getSize()).isEqualTo(5);
+    }
+
+    @Test
+    void fromContext() {
+        BuildContext context = EasyMock.createMock(BuildContext.class);
+        EasyMock.expect(context.eval("%{buildroot}")).andReturn(br.toString());
+        EasyMock.replay(context);
+        assertThat(BuildrootIndex.of(context).size()).isEqualTo(9);
+        EasyMock.verify(context);
+    }
+
+    @Test
+    void sharedIndex() {
+        BuildrootIndex index = BuildrootIndex.scan(br);
+        IndexedBuildContext context = EasyMock.createMock(IndexedBuildContext.class);
+        EasyMock.expect(context.getBuildrootIndex()).andReturn(index);
+        EasyMock.replay(context);
+        assertThat(BuildrootIndex.of(context)).isSameAs(index);
+        EasyMock.verify(context);
+    }
+}
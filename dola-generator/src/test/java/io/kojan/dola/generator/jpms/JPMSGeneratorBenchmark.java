@@ -0,0 +1,140 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator.jpms;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Compares looking up module-info.class by iterating over versioned JAR entries with direct
+ * lookup done by {@link JPMSGenerator}, on the same set of multi-release JARs with many entries.
+ * Both variants open the JAR and read the entry in the same way, so that only the lookup differs.
+ *
+ * <p>Not ran as part of the test suite. Usage: {@code JPMSGeneratorBenchmark [entries [rounds]]}
+ */
+public class JPMSGeneratorBenchmark {
+    static void createJar(Path jarPath, int entries) throws IOException {
+        try (ZipInputStream zis =
+                        new ZipInputStream(
+                                Files.newInputStream(Path.of("src/test/resources/mr.jar")));
+                OutputStream os = Files.newOutputStream(jarPath);
+                ZipOutputStream zos = new ZipOutputStream(os)) {
+            for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                zos.putNextEntry(new ZipEntry(entry.getName()));
+                zis.transferTo(zos);
+            }
+            for (int i = 0; i < entries; i++) {
+                String name = "org/example/pkg" + i / 100 + "/Class" + i + ".class";
+                if (i % 10 == 0) {
+                    name = "META-INF/versions/11/" + name;
+                }
+                zos.putNextEntry(new ZipEntry(name));
+                zos.write(name.getBytes());
+            }
+        }
+    }
+
+    static int iterate(Path jarPath) throws IOException {
+        int found = 0;
+        try (JarFile jarFile =
+                new JarFile(
+                        jarPath.toFile(), false, JarFile.OPEN_READ, JarFile.runtimeVersion())) {
+            Iterator<JarEntry> it = jarFile.versionedStream().iterator();
+            while (it.hasNext()) {
+                JarEntry jarEntry = it.next();
+                if ("module-info.class".equals(jarEntry.getName())) {
+                    try (InputStream is = jarFile.getInputStream(jarEntry)) {
+                        found += is.readAllBytes().length;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    static int lookup(Path jarPath) throws IOException {
+        int found = 0;
+        try (JarFile jarFile =
+                new JarFile(
+                        jarPath.toFile(), false, JarFile.OPEN_READ, JarFile.runtimeVersion())) {
+            JarEntry jarEntry = jarFile.getJarEntry("module-info.class");
+            if (jarEntry != null) {
+                try (InputStream is = jarFile.getInputStream(jarEntry)) {
+                    found += is.readAllBytes().length;
+                }
+            }
+        }
+        return found;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int jars = 10;
+        Path dir = Files.createTempDirectory("dola-benchmark-");
+        List<Path> jarPaths = new ArrayList<>();
+        for (int i = 0; i < jars; i++) {
+            Path jarPath = dir.resolve("big" + i + ".jar");
+            createJar(jarPath, entries);
+            jarPaths.add(jarPath);
+        }
+        try {
+            for (int warmup = 0; warmup < 2; warmup++) {
+                long iterated = 0;
+                long looked = 0;
+                for (int i = 0; i < rounds; i++) {
+                    for (Path jarPath : jarPaths) {
+                        long t0 = System.nanoTime();
+                        int a = iterate(jarPath);
+                        long t1 = System.nanoTime();
+                        int b = lookup(jarPath);
+                        long t2 = System.nanoTime();
+                        if (a != b || a == 0) {
+                            throw new IllegalStateException("Lookups disagree");
+                        }
+                        iterated += t1 - t0;
+                        looked += t2 - t1;
+                    }
+                }
+                System.out.printf(
+                        "%s: %d entries, iteration %.2f ms/JAR, direct lookup %.2f ms/JAR%n",
+                        warmup == 0 ? "warm-up" : "measured",
+                        entries,
+                        iterated / 1e6 / rounds / jars,
+                        looked / 1e6 / rounds / jars);
+            }
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+}
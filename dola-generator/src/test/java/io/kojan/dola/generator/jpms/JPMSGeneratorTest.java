@@ -19,6 +19,8 @@ import io.kojan.dola.generator.BuildContext;
 import io.kojan.dola.generator.Collector;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import org.easymock.EasyMock;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -37,12 +39,17 @@ class JPMSGeneratorTest {
         EasyMock.expect(context.eval("%{buildroot}")).andReturn(br.toString()).anyTimes();
     }
 
+    private void expectThreads(String threads) {
+        EasyMock.expect(context.eval("%{?__dolagen_jpms_threads}")).andReturn(threads).anyTimes();
+    }
+
     private void expectProvides(Path filePath, String prov) {
         collector.addProvides(filePath, prov);
         EasyMock.expectLastCall();
     }
 
     private void performTest(Path srcPath, Path jarPath) throws Exception {
+        expectThreads("");
         EasyMock.replay(collector, context);
         Files.createDirectories(jarPath.getParent());
         Files.copy(srcPath, jarPath);
@@ -65,4 +72,34 @@ class JPMSGeneratorTest {
         expectProvides(jarPath, "jpms(foo)");
         performTest(srcPath, jarPath);
     }
+
+    @Test
+    void largeMultiReleaseJar() throws Exception {
+        Path jarPath = br.resolve("usr/share/java/big.jar");
+        expectProvides(jarPath, "jpms(foo)");
+        expectThreads("");
+        EasyMock.replay(collector, context);
+        Files.createDirectories(jarPath.getParent());
+        JPMSGeneratorBenchmark.createJar(jarPath, 20000);
+        new JPMSGenerator(context).generate(collector);
+        EasyMock.verify(collector, context);
+    }
+
+    @Test
+    void parallel() throws Exception {
+        expectThreads("3");
+        List<Path> jarPaths = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Path jarPath = br.resolve("usr/share/java/mr" + i + ".jar");
+            expectProvides(jarPath, "jpms(foo)");
+            jarPaths.add(jarPath);
+        }
+        EasyMock.replay(collector, context);
+        Files.createDirectories(br.resolve("usr/share/java"));
+        for (Path jarPath : jarPaths) {
+            Files.copy(Path.of("src/test/resources/mr.jar"), jarPath);
+        }
+        new JPMSGenerator(context).generate(collector);
+        EasyMock.verify(collector, context);
+    }
 }
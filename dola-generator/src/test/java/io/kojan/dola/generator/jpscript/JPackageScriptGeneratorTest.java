@@ -42,11 +42,13 @@ class JPackageScriptGeneratorTest {
         EasyMock.expectLastCall();
     }
 
-    private void performTest(String script) throws Exception {
-        Path scriptPath = Path.of("src/test/resources/usr/bin").resolve(script);
+    private void performTest(String... scripts) throws Exception {
         Path binDir = br.resolve("usr/bin");
         Files.createDirectories(binDir);
-        Files.copy(scriptPath, binDir.resolve(script));
+        for (String script : scripts) {
+            Path scriptPath = Path.of("src/test/resources/usr/bin").resolve(script);
+            Files.copy(scriptPath, binDir.resolve(script));
+        }
         EasyMock.replay(collector, context);
         new JPackageScriptGenerator(context).generate(collector);
         EasyMock.verify(collector, context);
@@ -68,4 +70,11 @@ class JPackageScriptGeneratorTest {
     void invalidUtf8() throws Exception {
         performTest("invalid-utf8");
     }
+
+    @Test
+    void invalidUtf8NextToJPackage() throws Exception {
+        expectRequires("javapackages-tools");
+        expectRequires("java-21-openjdk-headless");
+        performTest("invalid-utf8", "jflex");
+    }
 }
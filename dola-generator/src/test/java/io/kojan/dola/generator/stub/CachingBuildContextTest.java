@@ -0,0 +1,58 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator.stub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.kojan.dola.generator.BuildContext;
+import java.util.List;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.Test;
+
+class CachingBuildContextTest {
+    @Test
+    void invariantMacrosExpandedOnce() {
+        BuildContext bc = EasyMock.createMock(BuildContext.class);
+        EasyMock.expect(bc.eval("%{buildroot}")).andReturn("/build/root");
+        EasyMock.expect(bc.eval("%{?foo}")).andReturn("bar").times(2);
+        EasyMock.replay(bc);
+        CachingBuildContext cbc = new CachingBuildContext(bc);
+        assertThat(cbc.eval("%{buildroot}")).isEqualTo("/build/root");
+        assertThat(cbc.eval("%{buildroot}")).isEqualTo("/build/root");
+        assertThat(cbc.eval("%{?foo}")).isEqualTo("bar");
+        assertThat(cbc.eval("%{?foo}")).isEqualTo("bar");
+        EasyMock.verify(bc);
+    }
+
+    @Test
+    void batch() {
+        BuildContext bc = EasyMock.createMock(BuildContext.class);
+        EasyMock.expect(bc.eval("%{_javadir}")).andReturn("/usr/share/java");
+        EasyMock.expect(bc.evalAll(List.of("%1", "%{NAME}", "%2", "%{NAME}")))
+                .andReturn(List.of("a", "foo", "b", "foo"));
+        EasyMock.expect(bc.evalAll(List.of("%1"))).andReturn(List.of("c"));
+        EasyMock.replay(bc);
+        CachingBuildContext cbc = new CachingBuildContext(bc);
+        assertThat(cbc.eval("%{_javadir}")).isEqualTo("/usr/share/java");
+        assertThat(cbc.evalAll(List.of("%1", "%{NAME}", "%{_javadir}", "%2", "%{NAME}")))
+                .containsExactly("a", "foo", "/usr/share/java", "b", "foo");
+        assertThat(cbc.evalAll(List.of("%{NAME}", "%1", "%{_javadir}")))
+                .containsExactly("foo", "c", "/usr/share/java");
+        assertThat(cbc.evalAll(List.of("%{NAME}"))).containsExactly("foo");
+        assertThat(cbc.eval("%{NAME}")).isEqualTo("foo");
+        EasyMock.verify(bc);
+    }
+}
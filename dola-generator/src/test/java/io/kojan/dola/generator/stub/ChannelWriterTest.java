@@ -0,0 +1,53 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator.stub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class ChannelWriterTest {
+    @Test
+    void smallBuffer() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(bos);
+        ChannelWriter writer = new ChannelWriter(8);
+        String text = "mvn(org.example:żółć-😀-artifact) = 1.2.3";
+        writer.open(channel);
+        writer.append(';').append("/usr/share/java/foo.jar").append('\n');
+        writer.append(text).append('ą').append('\n');
+        writer.append("xx" + text + "yy", 2, text.length() + 2);
+        writer.finish();
+        assertThat(bos.toString(StandardCharsets.UTF_8))
+                .isEqualTo(";/usr/share/java/foo.jar\n" + text + "ą\n" + text);
+    }
+
+    @Test
+    void reuse() throws Exception {
+        ChannelWriter writer = new ChannelWriter(8);
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            writer.open(Channels.newChannel(bos));
+            writer.append("run ").append(Integer.toString(i));
+            writer.finish();
+            assertThat(bos.toString(StandardCharsets.UTF_8)).isEqualTo("run " + i);
+        }
+    }
+}
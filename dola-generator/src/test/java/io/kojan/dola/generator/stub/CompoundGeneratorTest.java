@@ -19,14 +19,20 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 import io.kojan.dola.generator.BuildContext;
+import io.kojan.dola.generator.BuildrootIndex;
+import io.kojan.dola.generator.CacheableGenerator;
 import io.kojan.dola.generator.Collector;
+import io.kojan.dola.generator.ConcurrentGenerator;
 import io.kojan.dola.generator.Generator;
 import io.kojan.dola.generator.GeneratorFactory;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Stream;
 import org.easymock.EasyMock;
 import org.junit.jupiter.api.Test;
@@ -138,6 +144,84 @@ class TestGeneratorFactory3 implements GeneratorFactory {
     }
 }
 
+class CountingGeneratorFactory implements GeneratorFactory {
+    static int count;
+
+    @Override
+    public Generator createGenerator(BuildContext context) {
+        return new CacheableGenerator() {
+            @Override
+            public void generate(Collector collector) {
+                count++;
+                Path filePath = Path.of(context.eval("%{buildroot}")).resolve("some/file/one");
+                try {
+                    collector.addProvides(filePath, "content(" + Files.readString(filePath) + ")");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                context.eval("%{warn:counted}");
+            }
+        };
+    }
+}
+
+class PerFileGeneratorFactory implements GeneratorFactory {
+    static List<String> analyzed = new ArrayList<>();
+
+    @Override
+    public Generator createGenerator(BuildContext context) {
+        return new CacheableGenerator() {
+            @Override
+            public boolean isPerFile() {
+                return true;
+            }
+
+            @Override
+            public void generate(Collector collector) {
+                for (BuildrootIndex.Entry entry : BuildrootIndex.of(context).getEntries()) {
+                    if (entry.isRegularFile()) {
+                        analyzed.add(entry.getRelativePath());
+                        try {
+                            collector.addProvides(
+                                    entry.getPath(),
+                                    "content(" + Files.readString(entry.getPath()) + ")");
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }
+            }
+        };
+    }
+}
+
+class ConcurrentGeneratorFactory implements GeneratorFactory {
+    static boolean evalUndeclared;
+
+    @Override
+    public Generator createGenerator(BuildContext context) {
+        return new ConcurrentGenerator() {
+            @Override
+            public Set<String> getRequiredMacros() {
+                return Set.of("%{buildroot}", "%{foo}");
+            }
+
+            @Override
+            public void generate(Collector collector) {
+                Path filePath = Path.of(context.eval("%{buildroot}")).resolve("some/file/one");
+                collector.addProvides(filePath, context.eval("%{foo}"));
+                if (Thread.currentThread().isVirtual()) {
+                    collector.addProvides(filePath, "virtual");
+                }
+                context.eval("%{warn:concurrent}");
+                if (evalUndeclared) {
+                    context.eval("%{bar}");
+                }
+            }
+        };
+    }
+}
+
 class CompoundGeneratorTest {
     @TempDir Path br;
 
@@ -156,9 +240,13 @@ class CompoundGeneratorTest {
         EasyMock.expect(bc.eval("%{?__dolagen_requires_generators}")).andReturn(generators);
         EasyMock.expect(bc.eval("%{?__dolagen_debug}")).andReturn("").anyTimes();
         EasyMock.expect(bc.eval("%{?__dolagen_protocol}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_concurrent_generators}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_cache_dir}")).andReturn("").anyTimes();
         EasyMock.expect(bc.eval("%{buildroot}")).andReturn(br.toString()).anyTimes();
         EasyMock.expect(bc.eval("%#")).andReturn("1").times(2);
-        EasyMock.expect(bc.eval("%1")).andReturn(br + "/some/file/one").times(2);
+        EasyMock.expect(bc.evalAll(List.of("%1")))
+                .andReturn(List.of(br + "/some/file/one"))
+                .times(2);
         Generator gen1 = EasyMock.createStrictMock(Generator.class);
         TestGeneratorFactory1.gen = gen1;
         gen1.generate(EasyMock.isA(Collector.class));
@@ -182,6 +270,8 @@ class CompoundGeneratorTest {
         EasyMock.expect(bc.eval("%{?__dolagen_requires_generators}")).andReturn("com.foo.Bar");
         EasyMock.expect(bc.eval("%{?__dolagen_debug}")).andReturn("").anyTimes();
         EasyMock.expect(bc.eval("%{?__dolagen_protocol}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_concurrent_generators}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_cache_dir}")).andReturn("").anyTimes();
         EasyMock.replay(bc);
         assertThatExceptionOfType(RuntimeException.class)
                 .isThrownBy(() -> new CompoundGenerator(bc).runGenerator("provides"))
@@ -199,6 +289,8 @@ class CompoundGeneratorTest {
                 .andReturn(CompoundGeneratorTest.class.getName());
         EasyMock.expect(bc.eval("%{?__dolagen_debug}")).andReturn("").anyTimes();
         EasyMock.expect(bc.eval("%{?__dolagen_protocol}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_concurrent_generators}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_cache_dir}")).andReturn("").anyTimes();
         EasyMock.replay(bc);
         assertThatExceptionOfType(ClassCastException.class)
                 .isThrownBy(() -> new CompoundGenerator(bc).runGenerator("provides"))
@@ -213,9 +305,11 @@ class CompoundGeneratorTest {
         EasyMock.expect(bc.eval("%{?__dolagen_requires_generators}")).andReturn("");
         EasyMock.expect(bc.eval("%{?__dolagen_debug}")).andReturn("").anyTimes();
         EasyMock.expect(bc.eval("%{?__dolagen_protocol}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_concurrent_generators}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_cache_dir}")).andReturn("").anyTimes();
         EasyMock.expect(bc.eval("%{buildroot}")).andReturn(br.toString()).anyTimes();
         EasyMock.expect(bc.eval("%#")).andReturn("1");
-        EasyMock.expect(bc.eval("%1")).andReturn(br + "/some/file/one");
+        EasyMock.expect(bc.evalAll(List.of("%1"))).andReturn(List.of(br + "/some/file/one"));
         EasyMock.expect(bc.eval("%{warn:dola-generator: no generators were specified}"))
                 .andReturn("");
         EasyMock.replay(bc);
@@ -235,9 +329,13 @@ class CompoundGeneratorTest {
                 .andReturn(TGFB.class.getName() + " " + TGFC.class.getName());
         EasyMock.expect(bc.eval("%{?__dolagen_debug}")).andReturn("").anyTimes();
         EasyMock.expect(bc.eval("%{?__dolagen_protocol}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_concurrent_generators}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_cache_dir}")).andReturn("").anyTimes();
         EasyMock.expect(bc.eval("%{buildroot}")).andReturn(br.toString()).anyTimes();
         EasyMock.expect(bc.eval("%#")).andReturn("1").times(2);
-        EasyMock.expect(bc.eval("%1")).andReturn(br + "/some/file/one").times(2);
+        EasyMock.expect(bc.evalAll(List.of("%1")))
+                .andReturn(List.of(br + "/some/file/one"))
+                .times(2);
         EasyMock.replay(bc);
         Files.createDirectories(br.resolve("some/file"));
         Files.createFile(br.resolve("some/file/one"));
@@ -258,13 +356,13 @@ class CompoundGeneratorTest {
                 .andReturn(TestGeneratorFactory3.class.getName());
         EasyMock.expect(bc.eval("%{?__dolagen_debug}")).andReturn("").anyTimes();
         EasyMock.expect(bc.eval("%{?__dolagen_protocol}")).andReturn("multifile").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_concurrent_generators}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_cache_dir}")).andReturn("").anyTimes();
         EasyMock.expect(bc.eval("%{buildroot}")).andReturn("" + br + "").anyTimes();
         EasyMock.expect(bc.eval("%#")).andReturn("5").times(2);
-        EasyMock.expect(bc.eval("%1")).andReturn(br + "/f").times(2);
-        EasyMock.expect(bc.eval("%2")).andReturn(br + "/f2").times(2);
-        EasyMock.expect(bc.eval("%3")).andReturn(br + "/ff3").times(2);
-        EasyMock.expect(bc.eval("%4")).andReturn(br + "/file").times(2);
-        EasyMock.expect(bc.eval("%5")).andReturn(br + "/file5").times(2);
+        EasyMock.expect(bc.evalAll(List.of("%1", "%2", "%3", "%4", "%5")))
+                .andReturn(List.of(br + "/f", br + "/f2", br + "/ff3", br + "/file", br + "/file5"))
+                .times(2);
         EasyMock.replay(bc);
         Files.createDirectories(br);
         Files.createFile(br.resolve("f"));
@@ -305,4 +403,154 @@ class CompoundGeneratorTest {
         assertThat(req).isEqualTo(";" + br + "/ff3\n" + "req\n" + "");
         EasyMock.verify(bc);
     }
+
+    @Test
+    void streamed(@TempDir Path outDir) throws Exception {
+        BuildContext bc = EasyMock.createMock(BuildContext.class);
+        EasyMock.expect(bc.eval("%{?__dolagen_provides_generators}"))
+                .andReturn(TestGeneratorFactory3.class.getName());
+        EasyMock.expect(bc.eval("%{?__dolagen_requires_generators}"))
+                .andReturn(TestGeneratorFactory3.class.getName());
+        EasyMock.expect(bc.eval("%{?__dolagen_debug}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_protocol}")).andReturn("multifile").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_concurrent_generators}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_cache_dir}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{buildroot}")).andReturn("" + br + "").anyTimes();
+        EasyMock.expect(bc.eval("%#")).andReturn("2").times(3);
+        EasyMock.expect(bc.evalAll(List.of("%1", "%2")))
+                .andReturn(List.of(br + "/f", br + "/ff3"))
+                .times(3);
+        EasyMock.replay(bc);
+        Files.createDirectories(br);
+        Files.createFile(br.resolve("f"));
+        Files.createFile(br.resolve("ff3"));
+        CompoundGenerator cg = new CompoundGenerator(bc);
+        Path out = outDir.resolve("out");
+        Files.writeString(out, "garbage left from previous run\n");
+        cg.runGenerator("provides", out);
+        assertThat(out).hasContent(";" + br + "/f\n" + "prov1\n" + ";" + br + "/ff3\n" + "prov3\n");
+        assertThat(cg.runGenerator("provides")).isEqualTo(Files.readString(out));
+        cg.runGenerator("requires", out);
+        assertThat(out).hasContent(";" + br + "/ff3\n" + "req\n");
+        EasyMock.verify(bc);
+    }
+
+    @Test
+    void cache(@TempDir Path cacheDir) throws Exception {
+        BuildContext bc = EasyMock.createMock(BuildContext.class);
+        EasyMock.expect(bc.eval("%{?__dolagen_provides_generators}"))
+                .andReturn(CountingGeneratorFactory.class.getName())
+                .anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_requires_generators}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_debug}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_protocol}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_concurrent_generators}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_cache_dir}"))
+                .andReturn(cacheDir.toString())
+                .anyTimes();
+        EasyMock.expect(bc.eval("%{buildroot}")).andReturn(br.toString()).anyTimes();
+        EasyMock.expect(bc.eval("%#")).andReturn("1").anyTimes();
+        EasyMock.expect(bc.evalAll(List.of("%1")))
+                .andReturn(List.of(br + "/some/file/one"))
+                .anyTimes();
+        EasyMock.expect(bc.eval("%{warn:counted}")).andReturn("").times(3);
+        EasyMock.replay(bc);
+        Files.createDirectories(br.resolve("some/file"));
+        Files.writeString(br.resolve("some/file/one"), "foo");
+        CountingGeneratorFactory.count = 0;
+        assertThat(new CompoundGenerator(bc).runGenerator("provides")).isEqualTo("content(foo)\n");
+        assertThat(CountingGeneratorFactory.count).isEqualTo(1);
+        // Unchanged buildroot, results are taken from cache
+        assertThat(new CompoundGenerator(bc).runGenerator("provides")).isEqualTo("content(foo)\n");
+        assertThat(CountingGeneratorFactory.count).isEqualTo(1);
+        // Changed file content invalidates cached results
+        Files.writeString(br.resolve("some/file/one"), "bar");
+        assertThat(new CompoundGenerator(bc).runGenerator("provides")).isEqualTo("content(bar)\n");
+        assertThat(CountingGeneratorFactory.count).isEqualTo(2);
+        EasyMock.verify(bc);
+    }
+
+    @Test
+    void cachePerFile(@TempDir Path cacheDir) throws Exception {
+        BuildContext bc = EasyMock.createMock(BuildContext.class);
+        EasyMock.expect(bc.eval("%{?__dolagen_provides_generators}"))
+                .andReturn(PerFileGeneratorFactory.class.getName())
+                .anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_requires_generators}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_debug}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_protocol}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_concurrent_generators}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_cache_dir}"))
+                .andReturn(cacheDir.toString())
+                .anyTimes();
+        EasyMock.expect(bc.eval("%{buildroot}")).andReturn(br.toString()).anyTimes();
+        EasyMock.expect(bc.eval("%#")).andReturn("2").anyTimes();
+        EasyMock.expect(bc.evalAll(List.of("%1", "%2")))
+                .andReturn(List.of(br + "/one", br + "/two"))
+                .anyTimes();
+        EasyMock.replay(bc);
+        Files.writeString(br.resolve("one"), "foo");
+        Files.writeString(br.resolve("two"), "bar");
+        PerFileGeneratorFactory.analyzed.clear();
+        assertThat(new CompoundGenerator(bc).runGenerator("provides"))
+                .isEqualTo("content(foo)\ncontent(bar)\n");
+        assertThat(PerFileGeneratorFactory.analyzed).containsExactlyInAnyOrder("one", "two");
+        // Only the changed file is analyzed again
+        PerFileGeneratorFactory.analyzed.clear();
+        Files.writeString(br.resolve("two"), "quux");
+        assertThat(new CompoundGenerator(bc).runGenerator("provides"))
+                .isEqualTo("content(foo)\ncontent(quux)\n");
+        assertThat(PerFileGeneratorFactory.analyzed).containsExactly("two");
+        // Rewritten file with the same contents is recognized by its digest
+        PerFileGeneratorFactory.analyzed.clear();
+        Files.writeString(br.resolve("one"), "foo");
+        Files.setLastModifiedTime(br.resolve("one"), FileTime.fromMillis(0));
+        assertThat(new CompoundGenerator(bc).runGenerator("provides"))
+                .isEqualTo("content(foo)\ncontent(quux)\n");
+        assertThat(PerFileGeneratorFactory.analyzed).isEmpty();
+        EasyMock.verify(bc);
+    }
+
+    private BuildContext concurrentContext() {
+        BuildContext bc = EasyMock.createMock(BuildContext.class);
+        EasyMock.expect(bc.eval("%{?__dolagen_provides_generators}"))
+                .andReturn(ConcurrentGeneratorFactory.class.getName() + " " + TGFA.class.getName());
+        EasyMock.expect(bc.eval("%{?__dolagen_requires_generators}")).andReturn("");
+        EasyMock.expect(bc.eval("%{?__dolagen_debug}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_protocol}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{?__dolagen_concurrent_generators}")).andReturn("1");
+        EasyMock.expect(bc.eval("%{?__dolagen_cache_dir}")).andReturn("").anyTimes();
+        EasyMock.expect(bc.eval("%{buildroot}")).andReturn(br.toString()).anyTimes();
+        EasyMock.expect(bc.eval("%{foo}")).andReturn("foo");
+        EasyMock.expect(bc.eval("%{warn:concurrent}")).andReturn("");
+        return bc;
+    }
+
+    @Test
+    void concurrent() throws Exception {
+        BuildContext bc = concurrentContext();
+        EasyMock.expect(bc.eval("%#")).andReturn("1");
+        EasyMock.expect(bc.evalAll(List.of("%1"))).andReturn(List.of(br + "/some/file/one"));
+        EasyMock.replay(bc);
+        Files.createDirectories(br.resolve("some/file"));
+        Files.createFile(br.resolve("some/file/one"));
+        ConcurrentGeneratorFactory.evalUndeclared = false;
+        String prov = new CompoundGenerator(bc).runGenerator("provides");
+        assertThat(prov).isEqualTo("ProvA1\n" + "ProvA2\n" + "foo\n" + "virtual\n");
+        EasyMock.verify(bc);
+    }
+
+    @Test
+    void concurrentUndeclaredMacro() throws Exception {
+        BuildContext bc = concurrentContext();
+        EasyMock.replay(bc);
+        Files.createDirectories(br.resolve("some/file"));
+        Files.createFile(br.resolve("some/file/one"));
+        ConcurrentGeneratorFactory.evalUndeclared = true;
+        CompoundGenerator cg = new CompoundGenerator(bc);
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> cg.runGenerator("provides"))
+                .withMessageContaining("%{bar}");
+        EasyMock.verify(bc);
+    }
 }
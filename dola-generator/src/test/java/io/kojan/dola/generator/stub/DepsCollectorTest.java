@@ -0,0 +1,76 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator.stub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class DepsCollectorTest {
+    private final Path br = Path.of("/build/root");
+
+    @Test
+    void sorted() {
+        DepsCollector collector = new DepsCollector(br);
+        Path filePath = br.resolve("foo");
+        collector.addProvides(filePath, "b");
+        collector.addProvides(filePath, "c");
+        collector.addProvides(filePath, "a");
+        collector.addProvides(filePath, "b");
+        collector.addRequires(filePath, "x");
+        assertThat(collector.getDeps(filePath, "provides")).containsExactly("a", "b", "c");
+        assertThat(collector.getDeps(filePath, "requires")).containsExactly("x");
+        assertThat(collector.getDeps(filePath, "conflicts")).isEmpty();
+        assertThat(collector.getDeps(br.resolve("bar"), "provides")).isEmpty();
+    }
+
+    @Test
+    void concurrent() throws Exception {
+        DepsCollector collector = new DepsCollector(br);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int id = t;
+            threads.add(
+                    Thread.ofPlatform()
+                            .start(
+                                    () -> {
+                                        for (int i = 0; i < 1000; i++) {
+                                            Path filePath = br.resolve("file" + i % 10);
+                                            collector.addProvides(filePath, "dep" + i % 100);
+                                            collector.addRequires(filePath, "req" + id);
+                                        }
+                                    }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int f = 0; f < 10; f++) {
+            Path filePath = br.resolve("file" + f);
+            List<String> expected = new ArrayList<>();
+            for (int i = f; i < 100; i += 10) {
+                expected.add("dep" + i);
+            }
+            expected.sort(null);
+            assertThat(collector.getDeps(filePath, "provides"))
+                    .containsExactlyElementsOf(expected);
+            assertThat(collector.getDeps(filePath, "requires"))
+                    .containsExactly("req0", "req1", "req2", "req3", "req4", "req5", "req6", "req7");
+        }
+    }
+}
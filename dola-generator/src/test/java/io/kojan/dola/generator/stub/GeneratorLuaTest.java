@@ -0,0 +1,67 @@
+/*-
+ * Copyright (c) 2026 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.kojan.dola.generator.stub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InputStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GeneratorLuaTest {
+
+    @TempDir private Path tempDir;
+
+    @Test
+    void generatedDepsAreCapturedByRpm() throws Exception {
+        // Enough lines for the output to span several read buffers
+        StringBuilder deps = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            deps.append("mvn(org.example:artifact-").append(i).append(") >= 1.0\n");
+        }
+        Path depsPath = tempDir.resolve("deps");
+        Files.writeString(depsPath, deps);
+        Path luaDir = Path.of("src/main/lua").toAbsolutePath();
+        // Replace the BSX module with one that writes prepared dependencies to the output file
+        StringBuilder macro = new StringBuilder();
+        macro.append("%{lua:\n");
+        macro.append("package.path = \"").append(luaDir).append("/?.lua;\" .. package.path\n");
+        macro.append("package.preload[\"dola-bsx\"] = function()\n");
+        macro.append("  local function callN(realm, class, method, kind, path)\n");
+        macro.append("    local src = assert(io.open(\"").append(depsPath).append("\", \"rb\"))\n");
+        macro.append("    local dst = assert(io.open(path, \"wb\"))\n");
+        macro.append("    dst:write(src:read(\"a\"))\n");
+        macro.append("    src:close()\n");
+        macro.append("    dst:close()\n");
+        macro.append("  end\n");
+        macro.append("  return { callN = callN }\n");
+        macro.append("end\n");
+        macro.append("(require \"dola-generator\").generate(\"requires\")\n");
+        macro.append("}");
+        ProcessBuilder pb = new ProcessBuilder("rpm", "-E", macro.toString());
+        pb.redirectError(Redirect.INHERIT);
+        Process p = pb.start();
+        String out;
+        try (InputStream is = p.getInputStream()) {
+            out = new String(is.readAllBytes());
+        }
+        assertThat(p.waitFor()).isEqualTo(0);
+        assertThat(out).isEqualTo(deps.toString());
+    }
+}
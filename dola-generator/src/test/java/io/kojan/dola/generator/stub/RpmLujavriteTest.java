@@ -21,6 +21,7 @@ import io.kojan.dola.generator.BuildContext;
 import java.io.InputStream;
 import java.lang.ProcessBuilder.Redirect;
 import java.nio.file.Path;
+import java.util.List;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -31,6 +32,17 @@ class RpmLujavriteStub {
         BuildContext context = new RpmBuildContext();
         System.out.println(context.eval("%[7+5]"));
         System.out.println(context.eval("%(expr 7 + 5)"));
+        for (int i = 0; i < 2; i++) {
+            List<String> macros =
+                    List.of(
+                            "%[7+5]",
+                            "%{?no_such_macro}",
+                            "1:2",
+                            "%%",
+                            "a\u0001\u0002\u0003\u0004b",
+                            "\uD83D\uDE00");
+            System.out.println(String.join("|", context.evalAll(macros)));
+        }
         return "7 plus " + arg + " equals " + context.eval("%[7+" + arg + "]");
     }
 }
@@ -67,6 +79,10 @@ class RpmLujavriteTest {
         try (InputStream is = p.getInputStream()) {
             out = new String(is.readAllBytes());
         }
-        assertThat(out).isEqualTo("foo\n12\n12\n7 plus 35 equals 42\n");
+        assertThat(out)
+                .isEqualTo(
+                        "foo\n12\n12\n"
+                                + "12||1:2|%|a\u0001\u0002\u0003\u0004b|\uD83D\uDE00\n".repeat(2)
+                                + "7 plus 35 equals 42\n");
     }
 }